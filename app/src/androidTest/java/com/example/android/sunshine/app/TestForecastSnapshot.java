@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.MatrixCursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+
+import com.example.android.sunshine.app.utilities.SunshineDateUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+
+/**
+ * Checks that a ForecastSnapshot diffed against the previous one only reports the days that
+ * actually changed.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestForecastSnapshot {
+
+    private static final int DAYS = 14;
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    @Test
+    public void testUnchangedForecastDispatchesNothing() {
+        ForecastSnapshot first = snapshot(0, DAYS, 800, null);
+        ForecastSnapshot second = snapshot(0, DAYS, 800, first);
+
+        List<String> updates = dispatch(second.getDiffFrom(first));
+        assertEquals("Unexpected updates: " + updates, 0, updates.size());
+    }
+
+    @Test
+    public void testChangedDayIsTheOnlyUpdate() {
+        ForecastSnapshot first = snapshot(0, DAYS, 800, null);
+
+        /* The same forecast, except that the fourth day turned rainy */
+        MatrixCursor cursor = new MatrixCursor(MainActivity.MAIN_FORECAST_PROJECTION);
+        for (int i = 0; i < DAYS; i++) {
+            cursor.addRow(row(i, i == 3 ? 500 : 800));
+        }
+        ForecastSnapshot second;
+        try {
+            second = ForecastSnapshot.fromCursor(mContext, cursor, first);
+        } finally {
+            cursor.close();
+        }
+
+        List<String> updates = dispatch(second.getDiffFrom(first));
+        assertEquals("Unexpected updates: " + updates, 1, updates.size());
+        assertEquals("changed 3+1", updates.get(0));
+    }
+
+    @Test
+    public void testNewDayShiftsRatherThanRebinds() {
+        ForecastSnapshot first = snapshot(0, DAYS, 800, null);
+        /* A day later: the first day is gone and one more day was added at the end */
+        ForecastSnapshot second = snapshot(1, DAYS, 800, first);
+
+        List<String> updates = dispatch(second.getDiffFrom(first));
+        /* One removal, one insertion, and the new first row redrawn for the "today" layout */
+        assertEquals("Unexpected updates: " + updates, 3, updates.size());
+        assertEquals(1, count(updates, "removed"));
+        assertEquals(1, count(updates, "inserted"));
+        assertEquals(1, count(updates, "changed"));
+    }
+
+    @Test
+    public void testDiffOnlyAppliesToItsBase() {
+        ForecastSnapshot first = snapshot(0, DAYS, 800, null);
+        ForecastSnapshot second = snapshot(0, DAYS, 800, first);
+
+        assertNotNull(second.getDiffFrom(first));
+        assertNull(second.getDiffFrom(ForecastSnapshot.EMPTY));
+        assertNull(first.getDiffFrom(ForecastSnapshot.EMPTY));
+    }
+
+    private ForecastSnapshot snapshot(int firstDay, int days, int weatherId,
+                                      ForecastSnapshot previous) {
+        MatrixCursor cursor = cursor(firstDay, days, weatherId);
+        try {
+            return ForecastSnapshot.fromCursor(mContext, cursor, previous);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static MatrixCursor cursor(int firstDay, int days, int weatherId) {
+        MatrixCursor cursor = new MatrixCursor(MainActivity.MAIN_FORECAST_PROJECTION);
+        for (int i = firstDay; i < firstDay + days; i++) {
+            cursor.addRow(row(i, weatherId));
+        }
+        return cursor;
+    }
+
+    /*
+     * Dates are counted from a fixed day in the past, rather than today, so that the friendly date
+     * strings don't depend on which day the test runs.
+     */
+    private static Object[] row(int day, int weatherId) {
+        long date = SunshineDateUtils.normalizeDate(0) + SunshineDateUtils.DAY_IN_MILLIS * day;
+        return new Object[]{date, 20.0, 10.0, weatherId};
+    }
+
+    private static int count(List<String> updates, String kind) {
+        int count = 0;
+        for (String update : updates) {
+            if (update.startsWith(kind)) count++;
+        }
+        return count;
+    }
+
+    private static List<String> dispatch(DiffUtil.DiffResult diff) {
+        final List<String> updates = new ArrayList<>();
+        diff.dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                updates.add("inserted " + position + "+" + count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                updates.add("removed " + position + "+" + count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                updates.add("moved " + fromPosition + ">" + toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                updates.add("changed " + position + "+" + count);
+            }
+        });
+        return updates;
+    }
+}
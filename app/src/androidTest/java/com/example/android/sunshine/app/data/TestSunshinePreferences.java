@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.utils.PollingCheck;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Checks that the SunshinePreferences snapshot follows changes to the preferences, whether they
+ * are made through SunshinePreferences or straight through SharedPreferences.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestSunshinePreferences {
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    private SharedPreferences mSharedPreferences;
+    private String mUnitsKey;
+    private String mOriginalUnits;
+    private Long mOriginalLat;
+    private Long mOriginalLong;
+
+    @Before
+    public void setUp() {
+        mSharedPreferences = PreferenceManager.getDefaultSharedPreferences(mContext);
+        mUnitsKey = mContext.getString(R.string.pref_units_key);
+        mOriginalUnits = mSharedPreferences.getString(mUnitsKey, null);
+        mOriginalLat = getStoredLong(SunshinePreferences.PREF_COORD_LAT);
+        mOriginalLong = getStoredLong(SunshinePreferences.PREF_COORD_LONG);
+    }
+
+    @After
+    public void tearDown() {
+        SharedPreferences.Editor editor = mSharedPreferences.edit();
+        if (mOriginalUnits == null) {
+            editor.remove(mUnitsKey);
+        } else {
+            editor.putString(mUnitsKey, mOriginalUnits);
+        }
+        putStoredLong(editor, SunshinePreferences.PREF_COORD_LAT, mOriginalLat);
+        putStoredLong(editor, SunshinePreferences.PREF_COORD_LONG, mOriginalLong);
+        editor.commit();
+    }
+
+    private Long getStoredLong(String key) {
+        return mSharedPreferences.contains(key) ? mSharedPreferences.getLong(key, 0) : null;
+    }
+
+    private static void putStoredLong(SharedPreferences.Editor editor, String key, Long value) {
+        if (value == null) {
+            editor.remove(key);
+        } else {
+            editor.putLong(key, value);
+        }
+    }
+
+    @Test
+    public void testSnapshotIsReusedUntilSomethingChanges() {
+        SunshinePreferences.Snapshot first = SunshinePreferences.getSnapshot(mContext);
+        assertSame(first, SunshinePreferences.getSnapshot(mContext));
+    }
+
+    @Test
+    public void testSetterRefreshesSnapshotImmediately() {
+        SunshinePreferences.setLocationDetails(mContext, 12.5, -45.25);
+
+        SunshinePreferences.Snapshot snapshot = SunshinePreferences.getSnapshot(mContext);
+        assertTrue(snapshot.isLocationLatLonAvailable);
+        assertEquals(12.5, snapshot.latitude);
+        assertEquals(-45.25, snapshot.longitude);
+
+        SunshinePreferences.resetLocationCoordinates(mContext);
+        assertFalse(SunshinePreferences.isLocationLatLonAvailable(mContext));
+    }
+
+    @Test
+    public void testOutsideChangeRefreshesSnapshot() {
+        /* Load the snapshot first, so that it has to be refreshed rather than loaded */
+        SunshinePreferences.getSnapshot(mContext);
+
+        mSharedPreferences.edit()
+                .putString(mUnitsKey, mContext.getString(R.string.pref_units_imperial))
+                .commit();
+
+        /* The change listener is called on the main thread, so give it a moment */
+        new PollingCheck() {
+            @Override
+            protected boolean check() {
+                return !SunshinePreferences.isMetric(mContext);
+            }
+        }.run();
+
+        mSharedPreferences.edit()
+                .putString(mUnitsKey, mContext.getString(R.string.pref_units_metric))
+                .commit();
+        new PollingCheck() {
+            @Override
+            protected boolean check() {
+                return SunshinePreferences.isMetric(mContext);
+            }
+        }.run();
+    }
+}
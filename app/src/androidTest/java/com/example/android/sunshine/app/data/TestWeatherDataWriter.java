@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Checks that WeatherDataWriter replaces the stored forecast all at once or not at all.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestWeatherDataWriter {
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    @Before
+    public void setUp() {
+        mContext.getContentResolver()
+                .delete(WeatherContract.WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI,
+                new ContentValues[]{TestUtilities.createTestWeatherContentValues()});
+    }
+
+    @Test
+    public void testCommitReplacesForecast() {
+        ContentValues[] forecast = TestUtilities.createBulkInsertTestWeatherValues();
+        TestUtilities.TestContentObserver observer = TestUtilities.getTestContentObserver();
+        mContext.getContentResolver().registerContentObserver(
+                WeatherContract.WeatherEntry.CONTENT_URI, true, observer);
+
+        WeatherDataWriter writer = WeatherDataWriter.begin(mContext);
+        try {
+            writer.deleteAll();
+            for (ContentValues values : forecast) {
+                writer.insert(values);
+            }
+            assertEquals(forecast.length, writer.commit());
+        } finally {
+            writer.abort();
+        }
+
+        observer.waitForNotificationOrFail();
+        mContext.getContentResolver().unregisterContentObserver(observer);
+        assertEquals("Committed forecast wasn't stored", forecast.length, countRows());
+    }
+
+    @Test
+    public void testAbortKeepsOldForecast() {
+        WeatherDataWriter writer = WeatherDataWriter.begin(mContext);
+        try {
+            writer.deleteAll();
+            ContentValues[] forecast = TestUtilities.createBulkInsertTestWeatherValues();
+            /* Only get halfway, as a canceled sync would */
+            for (int i = 0; i < forecast.length / 2; i++) {
+                writer.insert(forecast[i]);
+            }
+        } finally {
+            writer.abort();
+        }
+
+        assertEquals("Aborted write changed the stored forecast", 1, countRows());
+    }
+
+    private int countRows() {
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherContract.WeatherEntry.CONTENT_URI,
+                new String[]{WeatherContract.WeatherEntry._ID},
+                null,
+                null,
+                null);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+}
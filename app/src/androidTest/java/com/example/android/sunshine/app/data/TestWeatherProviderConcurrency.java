@@ -0,0 +1,361 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.app.sync.LatencyStats;
+import com.example.android.sunshine.app.utilities.SunshineDateUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Hammers the WeatherProvider with concurrent writers and readers, the way the sync, the
+ * forecast list, the detail screen, the notification and the watch push can all meet, and checks
+ * that no reader ever sees a forecast that is only partly written.
+ * <p>
+ * Every forecast written carries a generation number in all of its rows' pressure. A reader
+ * must always see exactly {@link #FORECAST_DAYS} consecutive days from today, all from the same
+ * generation. Writers come in three kinds, assigned in turn:
+ * <p>
+ *   1) Syncs, which replace the forecast through a WeatherDataWriter, as SunshineSyncTask does
+ * <p>
+ *   2) Provider bulkInserts of a whole new forecast over the old one
+ * <p>
+ *   3) Provider bulkInserts and deletes of past days, which readers never ask for but which
+ *    contend with them for the database all the same
+ * <p>
+ * and readers in two: the forecast list query and single date queries.
+ * <p>
+ * Readers first run alone and then alongside the writers, for the same time, and the latency of
+ * both runs is logged under the tag ProviderConcurrency, so that changes to locking or
+ * journaling can be compared by how much writing slows reading down. The number of writers and
+ * readers and the duration of each run can be set with the instrumentation arguments
+ * concurrencyWriters, concurrencyReaders and concurrencyDurationMs.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestWeatherProviderConcurrency {
+
+    private static final String TAG = "ProviderConcurrency";
+
+    private static final int DEFAULT_WRITERS = 3;
+    private static final int DEFAULT_READERS = 4;
+    private static final int DEFAULT_DURATION_MS = 5000;
+
+    private static final int FORECAST_DAYS = 14;
+    private static final int PAST_DAYS = 30;
+
+    private static final String[] PROJECTION = {
+            WeatherEntry.COLUMN_DATE,
+            WeatherEntry.COLUMN_PRESSURE,
+    };
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+    private final ContentResolver mResolver = mContext.getContentResolver();
+
+    private final long mToday = SunshineDateUtils.getNormalizedUtcDateForToday();
+    private final AtomicInteger mGenerations = new AtomicInteger();
+    private final AtomicReference<String> mFailure = new AtomicReference<>();
+
+    private volatile boolean mStopped;
+
+    @Before
+    public void setUp() {
+        mResolver.delete(WeatherEntry.CONTENT_URI, null, null);
+        /* Readers expect a whole forecast from the very start */
+        mResolver.bulkInsert(WeatherEntry.CONTENT_URI,
+                createForecast(mGenerations.getAndIncrement()));
+    }
+
+    @After
+    public void tearDown() {
+        mResolver.delete(WeatherEntry.CONTENT_URI, null, null);
+    }
+
+    @Test
+    public void testReadersNeverSeePartialForecasts() throws InterruptedException {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        int writers = getIntArgument(arguments, "concurrencyWriters", DEFAULT_WRITERS);
+        int readers = getIntArgument(arguments, "concurrencyReaders", DEFAULT_READERS);
+        long durationMillis = getIntArgument(arguments, "concurrencyDurationMs",
+                DEFAULT_DURATION_MS);
+
+        LatencyStats alone = run(0, readers, durationMillis, null);
+        assertNull(mFailure.get(), mFailure.get());
+
+        AtomicInteger writes = new AtomicInteger();
+        LatencyStats contended = run(writers, readers, durationMillis, writes);
+        assertNull(mFailure.get(), mFailure.get());
+        assertTrue("Writers made no progress", writes.get() > 0);
+
+        Log.i(TAG, writers + " writers, " + readers + " readers, " + durationMillis + "ms each, "
+                + writes.get() + " writes");
+        Log.i(TAG, "  readers alone:        " + alone.summary());
+        Log.i(TAG, "  readers with writers: " + contended.summary());
+        Log.i(TAG, String.format(Locale.US, "  inflation: p50 x%.2f p95 x%.2f p99 x%.2f",
+                ratio(contended.percentile(50), alone.percentile(50)),
+                ratio(contended.percentile(95), alone.percentile(95)),
+                ratio(contended.percentile(99), alone.percentile(99))));
+
+        /* And what's left is still one whole forecast */
+        checkForecast();
+        assertNull(mFailure.get(), mFailure.get());
+    }
+
+    /**
+     * Runs the writers and readers together until the duration is up.
+     *
+     * @param writes Counts the writes made; null if there are no writers
+     * @return The latency of every read, from all readers
+     */
+    private LatencyStats run(int writers, int readers, long durationMillis,
+                             final AtomicInteger writes) throws InterruptedException {
+        mStopped = false;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        final LatencyStats[] latencies = new LatencyStats[readers];
+
+        for (int i = 0; i < writers; i++) {
+            final int kind = i % 3;
+            threads.add(new Thread(new Guarded(start) {
+                @Override
+                void runOnce() {
+                    switch (kind) {
+                        case 0:
+                            writeSync();
+                            break;
+                        case 1:
+                            writeBulkInsert();
+                            break;
+                        default:
+                            writePastDays();
+                            break;
+                    }
+                    writes.incrementAndGet();
+                }
+            }, "writer-" + i));
+        }
+
+        for (int i = 0; i < readers; i++) {
+            final int reader = i;
+            final boolean listReader = i % 2 == 0;
+            latencies[i] = new LatencyStats();
+            threads.add(new Thread(new Guarded(start) {
+                private int mQueries;
+
+                @Override
+                void runOnce() {
+                    long startNanos = System.nanoTime();
+                    if (listReader) {
+                        checkForecast();
+                    } else {
+                        checkDate(mToday + (mQueries % FORECAST_DAYS)
+                                * SunshineDateUtils.DAY_IN_MILLIS);
+                    }
+                    latencies[reader].add(System.nanoTime() - startNanos);
+                    mQueries++;
+                }
+            }, "reader-" + i));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        Thread.sleep(durationMillis);
+        mStopped = true;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencyStats all = new LatencyStats();
+        for (LatencyStats latency : latencies) {
+            all.addAll(latency);
+        }
+        return all;
+    }
+
+    /**
+     * Runs one step of a writer or a reader over and over until the run is stopped or anything
+     * goes wrong, and records what went wrong.
+     */
+    private abstract class Guarded implements Runnable {
+
+        private final CountDownLatch mStart;
+
+        Guarded(CountDownLatch start) {
+            mStart = start;
+        }
+
+        abstract void runOnce();
+
+        @Override
+        public void run() {
+            try {
+                mStart.await();
+                while (!mStopped && mFailure.get() == null) {
+                    runOnce();
+                }
+            } catch (Throwable t) {
+                Log.e(TAG, Thread.currentThread().getName() + " failed", t);
+                mFailure.compareAndSet(null, Thread.currentThread().getName() + ": " + t);
+            }
+        }
+    }
+
+    private void writeSync() {
+        ContentValues[] forecast = createForecast(mGenerations.getAndIncrement());
+        WeatherDataWriter writer = WeatherDataWriter.begin(mContext);
+        try {
+            writer.deleteAll();
+            for (ContentValues values : forecast) {
+                writer.insert(values);
+            }
+            writer.commit();
+        } finally {
+            writer.abort();
+        }
+    }
+
+    private void writeBulkInsert() {
+        /* The dates are unique, so each row replaces the same day of the old forecast */
+        int inserted = mResolver.bulkInsert(WeatherEntry.CONTENT_URI,
+                createForecast(mGenerations.getAndIncrement()));
+        assertEquals(FORECAST_DAYS, inserted);
+    }
+
+    private void writePastDays() {
+        ContentValues[] past = new ContentValues[PAST_DAYS];
+        for (int day = 0; day < PAST_DAYS; day++) {
+            past[day] = createWeather(
+                    mToday - (day + 1) * SunshineDateUtils.DAY_IN_MILLIS, -1);
+        }
+        mResolver.bulkInsert(WeatherEntry.CONTENT_URI, past);
+        mResolver.delete(WeatherEntry.CONTENT_URI,
+                WeatherEntry.COLUMN_DATE + " < ?", new String[]{Long.toString(mToday)});
+    }
+
+    /**
+     * Queries the forecast as the forecast list does and records a failure unless it's
+     * {@link #FORECAST_DAYS} consecutive days from today, all from one generation.
+     */
+    private void checkForecast() {
+        Cursor cursor = mResolver.query(WeatherEntry.CONTENT_URI,
+                PROJECTION,
+                WeatherEntry.COLUMN_DATE + " >= ?",
+                new String[]{Long.toString(mToday)},
+                WeatherEntry.COLUMN_DATE + " ASC");
+        assertTrue("Null cursor", cursor != null);
+        try {
+            if (cursor.getCount() != FORECAST_DAYS) {
+                fail("Saw " + cursor.getCount() + " days instead of " + FORECAST_DAYS);
+                return;
+            }
+            double generation = Double.NaN;
+            for (int day = 0; cursor.moveToNext(); day++) {
+                long date = cursor.getLong(0);
+                double pressure = cursor.getDouble(1);
+                if (date != mToday + day * SunshineDateUtils.DAY_IN_MILLIS) {
+                    fail("Day " + day + " has date " + date);
+                    return;
+                }
+                if (day == 0) {
+                    generation = pressure;
+                } else if (pressure != generation) {
+                    fail("Day " + day + " is from generation " + pressure
+                            + ", day 0 from " + generation);
+                    return;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Queries one day as the detail screen does and records a failure unless it's there.
+     */
+    private void checkDate(long date) {
+        Cursor cursor = mResolver.query(WeatherEntry.buildWeatherUriWithDate(date),
+                PROJECTION, null, null, null);
+        assertTrue("Null cursor", cursor != null);
+        try {
+            if (cursor.getCount() != 1) {
+                fail("Saw " + cursor.getCount() + " rows for " + date);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void fail(String message) {
+        mFailure.compareAndSet(null, Thread.currentThread().getName() + ": " + message);
+    }
+
+    private ContentValues[] createForecast(int generation) {
+        ContentValues[] forecast = new ContentValues[FORECAST_DAYS];
+        for (int day = 0; day < FORECAST_DAYS; day++) {
+            forecast[day] = createWeather(
+                    mToday + day * SunshineDateUtils.DAY_IN_MILLIS, generation);
+        }
+        return forecast;
+    }
+
+    private static ContentValues createWeather(long date, int generation) {
+        ContentValues values = new ContentValues();
+        values.put(WeatherEntry.COLUMN_DATE, date);
+        values.put(WeatherEntry.COLUMN_DEGREES, 1.1);
+        values.put(WeatherEntry.COLUMN_HUMIDITY, 1.2);
+        /* The generation, so that readers can tell forecasts apart */
+        values.put(WeatherEntry.COLUMN_PRESSURE, generation);
+        values.put(WeatherEntry.COLUMN_MAX_TEMP, 75);
+        values.put(WeatherEntry.COLUMN_MIN_TEMP, 65);
+        values.put(WeatherEntry.COLUMN_WIND_SPEED, 5.5);
+        values.put(WeatherEntry.COLUMN_WEATHER_ID, 321);
+        return values;
+    }
+
+    private static double ratio(long value, long baseline) {
+        return baseline == 0 ? 0 : (double) value / baseline;
+    }
+
+    private static int getIntArgument(Bundle arguments, String key, int defaultValue) {
+        String value = arguments.getString(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects latency samples (in nanoseconds) and summarizes them for the benchmarks. Not thread
+ * safe: give each thread its own and combine them with {@link #addAll(LatencyStats)}.
+ */
+public class LatencyStats {
+
+    private long[] mSamples = new long[16];
+    private int mCount;
+
+    public void add(long nanos) {
+        if (mCount == mSamples.length) {
+            mSamples = Arrays.copyOf(mSamples, mCount * 2);
+        }
+        mSamples[mCount++] = nanos;
+    }
+
+    public void addAll(LatencyStats other) {
+        for (int i = 0; i < other.mCount; i++) {
+            add(other.mSamples[i]);
+        }
+    }
+
+    public int count() {
+        return mCount;
+    }
+
+    /**
+     * @param percentile Between 0 and 100
+     * @return The sample at that percentile (nearest rank), in nanoseconds. 0 if there are none.
+     */
+    public long percentile(double percentile) {
+        if (mCount == 0) return 0;
+        long[] sorted = Arrays.copyOf(mSamples, mCount);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * mCount);
+        return sorted[Math.max(0, Math.min(mCount - 1, rank - 1))];
+    }
+
+    public long mean() {
+        if (mCount == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < mCount; i++) {
+            sum += mSamples[i];
+        }
+        return sum / mCount;
+    }
+
+    /**
+     * @return A one line summary such as "n=20 mean=1.20ms p50=1.10ms p95=2.00ms p99=2.40ms"
+     */
+    public String summary() {
+        return String.format(Locale.US, "n=%d mean=%s p50=%s p95=%s p99=%s max=%s",
+                mCount,
+                millis(mean()),
+                millis(percentile(50)),
+                millis(percentile(95)),
+                millis(percentile(99)),
+                millis(percentile(100)));
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.US, "%.2fms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
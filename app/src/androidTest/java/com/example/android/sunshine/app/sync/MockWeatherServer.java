@@ -0,0 +1,377 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small local stand-in for the weather server. It answers /weather requests for any lat/lon or
+ * q parameter with an OpenWeatherMap shaped forecast, and can be scripted to misbehave in the
+ * ways a mobile connection does: a slow first byte, a truncated body, a 500, a "cod" 404
+ * payload or a dropped connection.
+ * <p>
+ * The forecast served for a location is derived from the location itself, so the same request
+ * always gets the same answer.
+ */
+class MockWeatherServer {
+
+    private static final String TAG = MockWeatherServer.class.getSimpleName();
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int DEFAULT_DAYS = 14;
+
+    /* A few common conditions, so that the served data exercises more than one icon */
+    private static final int[] WEATHER_IDS = {800, 801, 802, 803, 500, 501, 211, 300, 600, 741};
+
+    /** The ways a single response can go wrong. */
+    enum Fault {
+        /* A normal, complete 200 response */
+        NONE,
+        /* A normal response, but only after a delay before the first byte */
+        SLOW_FIRST_BYTE,
+        /* Promises a full body in Content-Length, sends half of it and closes the connection */
+        TRUNCATED_BODY,
+        /* An HTTP 500 with an HTML body */
+        SERVER_ERROR,
+        /* An HTTP 200 whose payload is OpenWeatherMap's "city not found" error */
+        COD_404,
+        /* Reads the request, then closes the connection without answering */
+        DROPPED_CONNECTION,
+    }
+
+    /**
+     * Decides which fault, if any, each request gets. The script is followed in order and
+     * repeats, unless a fault rate is set, in which case faults are picked at random from the
+     * script with a fixed seed.
+     */
+    static class FaultProfile {
+
+        final String name;
+        private final Fault[] mScript;
+        private final double mFaultRate;
+        private final long mSlowFirstByteMillis;
+        private final AtomicInteger mRequestCount = new AtomicInteger();
+        private final Random mRandom;
+
+        private FaultProfile(String name, Fault[] script, double faultRate,
+                             long slowFirstByteMillis, long seed) {
+            this.name = name;
+            mScript = script;
+            mFaultRate = faultRate;
+            mSlowFirstByteMillis = slowFirstByteMillis;
+            mRandom = new Random(seed);
+        }
+
+        /**
+         * @param name   Used in reports
+         * @param script Faults applied to successive requests, repeating from the start
+         */
+        static FaultProfile scripted(String name, Fault... script) {
+            return new FaultProfile(name, script, 1.0, 0, 0);
+        }
+
+        /**
+         * @param name        Used in reports
+         * @param faultRate   Fraction of requests, between 0 and 1, that get a fault
+         * @param seed        Seed for picking which requests fail and how
+         * @param faults      The faults to pick from
+         */
+        static FaultProfile random(String name, double faultRate, long seed, Fault... faults) {
+            return new FaultProfile(name, faults, faultRate, 0, seed);
+        }
+
+        /**
+         * @param firstByteMillis How long SLOW_FIRST_BYTE responses wait before answering
+         * @return A copy of this profile using the given delay
+         */
+        FaultProfile withSlowFirstByte(long firstByteMillis) {
+            return new FaultProfile(name, mScript, mFaultRate, firstByteMillis, 0);
+        }
+
+        synchronized Fault next() {
+            int request = mRequestCount.getAndIncrement();
+            if (mFaultRate >= 1.0) {
+                return mScript[request % mScript.length];
+            }
+            if (mRandom.nextDouble() >= mFaultRate) {
+                return Fault.NONE;
+            }
+            return mScript[mRandom.nextInt(mScript.length)];
+        }
+    }
+
+    private final Set<Socket> mOpenSockets = Collections.synchronizedSet(new HashSet<Socket>());
+    private final ExecutorService mConnectionExecutor = Executors.newCachedThreadPool();
+
+    private volatile FaultProfile mFaultProfile = FaultProfile.scripted("clean", Fault.NONE);
+    private ServerSocket mServerSocket;
+    private Thread mAcceptThread;
+
+    /**
+     * Starts listening on a free port on the loopback interface.
+     */
+    void start() throws IOException {
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        mAcceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, TAG);
+        mAcceptThread.start();
+    }
+
+    /**
+     * Stops accepting requests and closes every open connection.
+     */
+    void shutdown() throws IOException {
+        mServerSocket.close();
+        synchronized (mOpenSockets) {
+            for (Socket socket : mOpenSockets) {
+                socket.close();
+            }
+        }
+        mConnectionExecutor.shutdownNow();
+    }
+
+    /**
+     * @return The URL to use as NetworkUtils' forecast base URL
+     */
+    String getWeatherUrl() {
+        return "http://127.0.0.1:" + mServerSocket.getLocalPort() + "/weather";
+    }
+
+    void setFaultProfile(FaultProfile faultProfile) {
+        mFaultProfile = faultProfile;
+    }
+
+    private void acceptConnections() {
+        while (!mServerSocket.isClosed()) {
+            try {
+                final Socket socket = mServerSocket.accept();
+                mOpenSockets.add(socket);
+                mConnectionExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            serve(socket);
+                        } catch (IOException e) {
+                            Log.v(TAG, "Connection ended: " + e);
+                        } finally {
+                            closeQuietly(socket);
+                            mOpenSockets.remove(socket);
+                        }
+                    }
+                });
+            } catch (IOException e) {
+                /* The server socket was closed by shutdown() */
+            }
+        }
+    }
+
+    private void serve(Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), UTF_8));
+        String requestLine = reader.readLine();
+        if (requestLine == null) return;
+
+        /* Skip the headers, we don't need any of them */
+        String header;
+        do {
+            header = reader.readLine();
+        } while (header != null && !header.isEmpty());
+
+        String[] requestParts = requestLine.split(" ");
+        String target = requestParts.length > 1 ? requestParts[1] : "/";
+        String path = target.contains("?") ? target.substring(0, target.indexOf('?')) : target;
+        Map<String, String> query = parseQuery(target);
+
+        FaultProfile profile = mFaultProfile;
+        Fault fault = profile.next();
+        OutputStream out = socket.getOutputStream();
+
+        if (!path.endsWith("/weather")) {
+            respond(out, 404, "Not Found", "text/plain", "No such path".getBytes(UTF_8), false);
+            return;
+        }
+
+        switch (fault) {
+            case DROPPED_CONNECTION:
+                return;
+
+            case SERVER_ERROR:
+                respond(out, 500, "Internal Server Error", "text/html",
+                        "<html><body>Internal Server Error</body></html>".getBytes(UTF_8), false);
+                return;
+
+            case COD_404:
+                respond(out, 200, "OK", "application/json",
+                        "{\"cod\":\"404\",\"message\":\"city not found\"}".getBytes(UTF_8), false);
+                return;
+
+            case SLOW_FIRST_BYTE:
+                try {
+                    Thread.sleep(profile.mSlowFirstByteMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                respond(out, 200, "OK", "application/json", buildForecast(query), false);
+                return;
+
+            case TRUNCATED_BODY:
+                respond(out, 200, "OK", "application/json", buildForecast(query), true);
+                return;
+
+            case NONE:
+            default:
+                respond(out, 200, "OK", "application/json", buildForecast(query), false);
+        }
+    }
+
+    private static void respond(OutputStream out, int code, String reason, String contentType,
+                                byte[] body, boolean truncate) throws IOException {
+        String head = "HTTP/1.1 " + code + " " + reason + "\r\n"
+                + "Content-Type: " + contentType + "; charset=utf-8\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: close\r\n"
+                + "\r\n";
+        out.write(head.getBytes(UTF_8));
+        out.write(body, 0, truncate ? body.length / 2 : body.length);
+        out.flush();
+    }
+
+    /**
+     * Builds an OpenWeatherMap daily forecast for the location in the query. Locations given by
+     * name get made up coordinates, which the app will then use for its next request, just like
+     * it does with the real server.
+     */
+    private static byte[] buildForecast(Map<String, String> query) {
+        double latitude;
+        double longitude;
+        String cityName;
+        if (query.containsKey("lat") && query.containsKey("lon")) {
+            latitude = parseDouble(query.get("lat"));
+            longitude = parseDouble(query.get("lon"));
+            cityName = "Lat " + query.get("lat") + ", Lon " + query.get("lon");
+        } else {
+            String location = query.containsKey("q") ? query.get("q") : "Mountain View, CA";
+            Random locationRandom = new Random(location.hashCode());
+            latitude = locationRandom.nextDouble() * 180 - 90;
+            longitude = locationRandom.nextDouble() * 360 - 180;
+            cityName = location;
+        }
+
+        int days = DEFAULT_DAYS;
+        if (query.containsKey("cnt")) {
+            days = Math.max(1, (int) parseDouble(query.get("cnt")));
+        }
+
+        Random random = new Random(Double.doubleToLongBits(latitude) * 31
+                + Double.doubleToLongBits(longitude));
+        long firstDaySeconds = System.currentTimeMillis() / 1000;
+
+        StringBuilder json = new StringBuilder(256 + days * 300);
+        json.append("{\"city\":{\"id\":").append(Math.abs(cityName.hashCode()))
+                .append(",\"name\":\"").append(cityName.replace("\"", ""))
+                .append("\",\"coord\":{\"lon\":").append(format(longitude))
+                .append(",\"lat\":").append(format(latitude))
+                .append("},\"country\":\"US\",\"population\":0},")
+                .append("\"cod\":\"200\",\"message\":0.01,\"cnt\":").append(days)
+                .append(",\"list\":[");
+
+        for (int day = 0; day < days; day++) {
+            double min = 5 + random.nextDouble() * 15;
+            double max = min + 3 + random.nextDouble() * 10;
+            int weatherId = WEATHER_IDS[random.nextInt(WEATHER_IDS.length)];
+            if (day > 0) json.append(',');
+            json.append("{\"dt\":").append(firstDaySeconds + day * 86400L)
+                    .append(",\"temp\":{\"day\":").append(format((min + max) / 2))
+                    .append(",\"min\":").append(format(min))
+                    .append(",\"max\":").append(format(max))
+                    .append(",\"night\":").append(format(min + 1))
+                    .append(",\"eve\":").append(format(max - 1))
+                    .append(",\"morn\":").append(format(min + 2))
+                    .append("},\"pressure\":").append(format(995 + random.nextDouble() * 40))
+                    .append(",\"humidity\":").append(30 + random.nextInt(70))
+                    .append(",\"weather\":[{\"id\":").append(weatherId)
+                    .append(",\"main\":\"Weather\",\"description\":\"mock weather\"")
+                    .append(",\"icon\":\"01d\"}],\"speed\":").append(format(random.nextDouble() * 10))
+                    .append(",\"deg\":").append(random.nextInt(360))
+                    .append(",\"clouds\":").append(random.nextInt(101))
+                    .append('}');
+        }
+        json.append("]}");
+        return json.toString().getBytes(UTF_8);
+    }
+
+    private static Map<String, String> parseQuery(String target) {
+        Map<String, String> query = new HashMap<>();
+        int start = target.indexOf('?');
+        if (start == -1) return query;
+        for (String parameter : target.substring(start + 1).split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals <= 0) continue;
+            try {
+                query.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+            } catch (IOException | IllegalArgumentException e) {
+                /* Ignore malformed parameters */
+            }
+        }
+        return query;
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.US, "%.2f", value);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            /* Already closed */
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.sunshine.app.network.HedgedWeatherTransport;
+import com.example.android.sunshine.app.network.HttpWeatherTransport;
+import com.example.android.sunshine.app.sync.MockWeatherServer.Fault;
+import com.example.android.sunshine.app.sync.MockWeatherServer.FaultProfile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Checks that a {@link HedgedWeatherTransport} falls back to the secondary server when the
+ * primary is slow, and leaves the secondary alone when the primary is healthy.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestHedgedRequests {
+
+    private static final long PRIMARY_STALL_MILLIS = 3000;
+    private static final long MIN_HEDGE_DELAY_MILLIS = 100;
+    private static final long DEFAULT_HEDGE_DELAY_MILLIS = 300;
+
+    private MockWeatherServer mPrimary;
+    private MockWeatherServer mSecondary;
+    private HedgedWeatherTransport mTransport;
+
+    @Before
+    public void setUp() throws IOException {
+        mPrimary = new MockWeatherServer();
+        mPrimary.start();
+        mSecondary = new MockWeatherServer();
+        mSecondary.start();
+
+        mTransport = new HedgedWeatherTransport(new HttpWeatherTransport(),
+                mPrimary.getWeatherUrl(), mSecondary.getWeatherUrl())
+                .setHedgeDelayBounds(MIN_HEDGE_DELAY_MILLIS, DEFAULT_HEDGE_DELAY_MILLIS);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mPrimary.shutdown();
+        mSecondary.shutdown();
+    }
+
+    @Test
+    public void healthyPrimaryIsNotHedged() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            fetch();
+        }
+        HedgedWeatherTransport.Stats stats = mTransport.getStats();
+        assertEquals(5, stats.requests);
+        assertEquals("Fast primary responses were hedged", 0, stats.hedges);
+    }
+
+    @Test
+    public void stalledPrimaryIsHedged() throws IOException {
+        mPrimary.setFaultProfile(FaultProfile.scripted("stalled", Fault.SLOW_FIRST_BYTE)
+                .withSlowFirstByte(PRIMARY_STALL_MILLIS));
+
+        long start = System.nanoTime();
+        fetch();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("Waited " + elapsedMillis + "ms for a stalled primary",
+                elapsedMillis < PRIMARY_STALL_MILLIS);
+        HedgedWeatherTransport.Stats stats = mTransport.getStats();
+        assertEquals(1, stats.hedges);
+        assertEquals(1, stats.secondaryWins);
+    }
+
+    @Test
+    public void failedPrimaryFallsBackToSecondary() throws IOException {
+        mPrimary.setFaultProfile(FaultProfile.scripted("dropped", Fault.DROPPED_CONNECTION));
+        fetch();
+        assertEquals(1, mTransport.getStats().secondaryWins);
+    }
+
+    @Test
+    public void losingPrimariesKeepTheHedgeDelayUp() throws IOException, InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            fetch();
+        }
+        long fastDelayNanos = mTransport.getHedgeDelayNanos();
+
+        mPrimary.setFaultProfile(FaultProfile.scripted("stalled", Fault.SLOW_FIRST_BYTE)
+                .withSlowFirstByte(PRIMARY_STALL_MILLIS));
+        for (int i = 0; i < 5; i++) {
+            fetch();
+        }
+
+        /*
+         * Each stalled primary lost to the secondary after the hedge delay, so it counts as at
+         * least that slow. It's recorded as its attempt winds down, just after the secondary
+         * answered, so give it a moment.
+         */
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (mTransport.getHedgeDelayNanos() <= fastDelayNanos
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("The hedge delay ignored primaries that lost to the secondary",
+                mTransport.getHedgeDelayNanos() > fastDelayNanos);
+    }
+
+    private void fetch() throws IOException {
+        URL url = new URL(mPrimary.getWeatherUrl() + "?lat=37.4&lon=-122.1&cnt=14");
+        InputStream in = mTransport.newCall(url).execute();
+        try {
+            byte[] buffer = new byte[4096];
+            int total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+            }
+            assertTrue("Empty response", total > 0);
+        } finally {
+            in.close();
+        }
+    }
+}
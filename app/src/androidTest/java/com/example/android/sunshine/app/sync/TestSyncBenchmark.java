@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.database.Cursor;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.network.ReplayWeatherTransport;
+import com.example.android.sunshine.app.network.WeatherTransport;
+import com.example.android.sunshine.app.utilities.NetworkUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Runs SunshineSyncTask end to end, many times, against recorded weather responses and logs how
+ * long each phase of the sync took. No network is used: responses are served by a
+ * {@link ReplayWeatherTransport}.
+ * <p>
+ * The recordings come from two places:
+ * <p>
+ *   1) The recordings bundled with the tests, in assets/recordings
+ * <p>
+ *   2) Any recordings made on the device into the app's weather-recordings directory, by
+ *    wrapping the HttpWeatherTransport in a RecordingWeatherTransport pointed at
+ *    new File(context.getFilesDir(), "weather-recordings")
+ * <p>
+ * The number of syncs per recording, the latency and the bandwidth can be set with the
+ * instrumentation arguments syncBenchmarkRuns, syncBenchmarkLatencyMs and
+ * syncBenchmarkBytesPerSecond. Each recording is synced both sequentially and through the
+ * ForecastPipeline. Results are written to logcat under the tag SyncBenchmark.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestSyncBenchmark {
+
+    private static final String TAG = "SyncBenchmark";
+
+    private static final String ASSET_RECORDINGS = "recordings";
+    private static final String DEVICE_RECORDINGS = "weather-recordings";
+
+    private static final int DEFAULT_RUNS = 20;
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    private WeatherTransport mOriginalTransport;
+
+    @Before
+    public void setUp() {
+        mOriginalTransport = NetworkUtils.getWeatherTransport();
+    }
+
+    @After
+    public void tearDown() {
+        NetworkUtils.setWeatherTransport(mOriginalTransport);
+        SunshineSyncTask.setPipelinedSyncEnabled(true);
+    }
+
+    @Test
+    public void benchmarkSyncAgainstRecordings() throws IOException {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        int runs = getIntArgument(arguments, "syncBenchmarkRuns", DEFAULT_RUNS);
+        long latencyMillis = getIntArgument(arguments, "syncBenchmarkLatencyMs", 0);
+        long bytesPerSecond = getIntArgument(arguments, "syncBenchmarkBytesPerSecond", 0);
+
+        List<File> recordings = collectRecordings();
+        assertFalse("No recordings to replay", recordings.isEmpty());
+
+        for (File recording : recordings) {
+            for (boolean pipelined : new boolean[]{false, true}) {
+                SunshineSyncTask.setPipelinedSyncEnabled(pipelined);
+                benchmarkRecording(recording, pipelined, runs, latencyMillis, bytesPerSecond);
+            }
+        }
+    }
+
+    private void benchmarkRecording(File recording, boolean pipelined, int runs,
+                                    long latencyMillis, long bytesPerSecond) {
+        NetworkUtils.setWeatherTransport(new ReplayWeatherTransport(recording)
+                .setLatencyMillis(latencyMillis)
+                .setBandwidth(bytesPerSecond));
+
+        LatencyStats total = new LatencyStats();
+        LatencyStats[] phases = new LatencyStats[SyncTimings.PHASE_COUNT];
+        for (int phase = 0; phase < SyncTimings.PHASE_COUNT; phase++) {
+            phases[phase] = new LatencyStats();
+        }
+
+        for (int run = 0; run < runs; run++) {
+            /* Start every run from an empty table so that each one does the same work */
+            mContext.getContentResolver()
+                    .delete(WeatherContract.WeatherEntry.CONTENT_URI, null, null);
+
+            SyncTimings timings = new SyncTimings();
+            SunshineSyncTask.syncWeather(mContext, timings);
+
+            assertTrue("Sync of " + recording.getName() + " inserted no weather",
+                    countWeatherRows() > 0);
+
+            total.add(timings.getTotalNanos());
+            for (int phase = 0; phase < SyncTimings.PHASE_COUNT; phase++) {
+                phases[phase].add(timings.getPhaseNanos(phase));
+            }
+        }
+
+        Log.i(TAG, recording.getName() + (pipelined ? " pipelined" : " sequential")
+                + " (" + recording.length() + " bytes, " + latencyMillis + "ms latency, "
+                + (bytesPerSecond > 0 ? bytesPerSecond + " B/s" : "unthrottled") + ")");
+        Log.i(TAG, "  total: " + total.summary());
+        for (int phase = 0; phase < SyncTimings.PHASE_COUNT; phase++) {
+            Log.i(TAG, "  " + SyncTimings.getPhaseName(phase) + ": "
+                    + phases[phase].summary());
+        }
+    }
+
+    /**
+     * Copies the bundled recordings to the device, then returns them along with any recordings
+     * already made on the device.
+     */
+    private List<File> collectRecordings() throws IOException {
+        List<File> recordings = new ArrayList<>();
+
+        File bundled = new File(mContext.getCacheDir(), "bundled-recordings");
+        if (!bundled.isDirectory() && !bundled.mkdirs()) {
+            throw new IOException("Can't create " + bundled);
+        }
+
+        AssetManager assets = InstrumentationRegistry.getContext().getAssets();
+        for (String name : assets.list(ASSET_RECORDINGS)) {
+            File recording = new File(bundled, name);
+            InputStream in = assets.open(ASSET_RECORDINGS + "/" + name);
+            OutputStream out = new FileOutputStream(recording);
+            try {
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+                out.close();
+            }
+            recordings.add(recording);
+        }
+
+        File[] onDevice = new File(mContext.getFilesDir(), DEVICE_RECORDINGS).listFiles();
+        if (onDevice != null) {
+            for (File recording : onDevice) {
+                if (recording.getName().endsWith(".json")) {
+                    recordings.add(recording);
+                }
+            }
+        }
+        return recordings;
+    }
+
+    private int countWeatherRows() {
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherContract.WeatherEntry.CONTENT_URI,
+                new String[]{WeatherContract.WeatherEntry._ID},
+                null,
+                null,
+                null);
+        if (cursor == null) return 0;
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static int getIntArgument(Bundle arguments, String key, int defaultValue) {
+        String value = arguments.getString(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+}
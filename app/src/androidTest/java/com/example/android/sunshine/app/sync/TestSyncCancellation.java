@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.sunshine.app.network.HttpWeatherTransport;
+import com.example.android.sunshine.app.network.WeatherTransport;
+import com.example.android.sunshine.app.sync.MockWeatherServer.Fault;
+import com.example.android.sunshine.app.sync.MockWeatherServer.FaultProfile;
+import com.example.android.sunshine.app.utilities.NetworkUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Cancels syncs while the server is still sitting on the first byte of its response, and checks
+ * that the sync gives up at once rather than waiting out the timeouts: canceling has to close the
+ * socket, whichever way the sync fetches the forecast.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestSyncCancellation {
+
+    /* The app's own timeouts, so that only canceling can end the sync early */
+    private static final int CONNECT_TIMEOUT_MILLIS = 15000;
+    private static final int READ_TIMEOUT_MILLIS = 20000;
+
+    /* Longer than the test would ever wait */
+    private static final long FIRST_BYTE_MILLIS = 10000;
+    /* Long enough for the request to be waiting on the server */
+    private static final long CANCEL_AFTER_MILLIS = 500;
+    /* How soon after canceling the sync must have returned */
+    private static final long PROMPT_MILLIS = 1000;
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    private MockWeatherServer mServer;
+    private WeatherTransport mOriginalTransport;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWeatherServer();
+        mServer.start();
+        mServer.setFaultProfile(FaultProfile.scripted("stalled_first_byte",
+                Fault.SLOW_FIRST_BYTE).withSlowFirstByte(FIRST_BYTE_MILLIS));
+
+        mOriginalTransport = NetworkUtils.getWeatherTransport();
+        NetworkUtils.setWeatherTransport(
+                new HttpWeatherTransport(CONNECT_TIMEOUT_MILLIS, READ_TIMEOUT_MILLIS));
+        NetworkUtils.setForecastBaseUrl(mServer.getWeatherUrl());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        SunshineSyncTask.setPipelinedSyncEnabled(true);
+        NetworkUtils.setForecastBaseUrl(null);
+        NetworkUtils.setWeatherTransport(mOriginalTransport);
+        mServer.shutdown();
+    }
+
+    @Test
+    public void cancelDuringSlowFirstBytePipelined() throws InterruptedException {
+        assertCancelsPromptly(true);
+    }
+
+    @Test
+    public void cancelDuringSlowFirstByteSequential() throws InterruptedException {
+        assertCancelsPromptly(false);
+    }
+
+    private void assertCancelsPromptly(boolean pipelined) throws InterruptedException {
+        SunshineSyncTask.setPipelinedSyncEnabled(pipelined);
+
+        final SyncCancellation cancellation = new SyncCancellation();
+        final boolean[] synced = {true};
+        Thread sync = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                synced[0] = SunshineSyncTask.syncWeather(mContext, cancellation);
+            }
+        }, "TestSyncCancellation");
+        sync.start();
+
+        Thread.sleep(CANCEL_AFTER_MILLIS);
+        assertTrue("The sync finished before it could be canceled", sync.isAlive());
+        long start = System.nanoTime();
+        cancellation.cancel();
+        sync.join(FIRST_BYTE_MILLIS);
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertFalse("The sync is still waiting for the server", sync.isAlive());
+        assertFalse("A canceled sync stored weather", synced[0]);
+        assertTrue("The sync took " + waitedMillis + "ms to notice it was canceled",
+                waitedMillis < PROMPT_MILLIS);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.network.HttpWeatherTransport;
+import com.example.android.sunshine.app.network.WeatherTransport;
+import com.example.android.sunshine.app.sync.MockWeatherServer.Fault;
+import com.example.android.sunshine.app.sync.MockWeatherServer.FaultProfile;
+import com.example.android.sunshine.app.utilities.NetworkUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Runs SunshineSyncTask against a {@link MockWeatherServer} under a series of fault profiles and
+ * reports, for each one, how many syncs succeeded and how long they took. Alongside the report,
+ * it checks the things that must always hold: a clean server always syncs, a broken one never
+ * does, and a failed sync never throws away the weather we already had.
+ * <p>
+ * The number of syncs per profile can be set with the instrumentation argument
+ * faultProfileRuns. Results are written to logcat under the tag SyncFaultProfiles.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestSyncFaultProfiles {
+
+    private static final String TAG = "SyncFaultProfiles";
+
+    private static final int DEFAULT_RUNS = 20;
+
+    /* Short timeouts, so that the slow profiles show up as timeouts rather than long waits */
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final int READ_TIMEOUT_MILLIS = 1000;
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    private MockWeatherServer mServer;
+    private WeatherTransport mOriginalTransport;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWeatherServer();
+        mServer.start();
+
+        mOriginalTransport = NetworkUtils.getWeatherTransport();
+        NetworkUtils.setWeatherTransport(
+                new HttpWeatherTransport(CONNECT_TIMEOUT_MILLIS, READ_TIMEOUT_MILLIS));
+        NetworkUtils.setForecastBaseUrl(mServer.getWeatherUrl());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        NetworkUtils.setForecastBaseUrl(null);
+        NetworkUtils.setWeatherTransport(mOriginalTransport);
+        mServer.shutdown();
+    }
+
+    @Test
+    public void cleanServerAlwaysSyncs() {
+        ProfileResult result = run(FaultProfile.scripted("clean", Fault.NONE));
+        assertEquals("Clean profile had failed syncs", result.runs, result.successes);
+    }
+
+    @Test
+    public void slowFirstByteWithinTimeoutSyncs() {
+        ProfileResult result = run(FaultProfile.scripted("slow_first_byte", Fault.SLOW_FIRST_BYTE)
+                .withSlowFirstByte(READ_TIMEOUT_MILLIS / 4));
+        assertEquals("Slow but in time responses failed to sync", result.runs, result.successes);
+    }
+
+    @Test
+    public void slowFirstByteBeyondTimeoutFails() {
+        ProfileResult result = run(FaultProfile.scripted("stalled_first_byte",
+                Fault.SLOW_FIRST_BYTE).withSlowFirstByte(READ_TIMEOUT_MILLIS * 3));
+        assertEquals("Stalled responses should time out", 0, result.successes);
+    }
+
+    @Test
+    public void truncatedBodyNeverSyncs() {
+        ProfileResult result = run(FaultProfile.scripted("truncated", Fault.TRUNCATED_BODY));
+        assertEquals("Truncated bodies should not be stored", 0, result.successes);
+    }
+
+    @Test
+    public void serverErrorNeverSyncs() {
+        ProfileResult result = run(FaultProfile.scripted("server_error", Fault.SERVER_ERROR));
+        assertEquals("500 responses should not be stored", 0, result.successes);
+    }
+
+    @Test
+    public void cod404NeverSyncs() {
+        ProfileResult result = run(FaultProfile.scripted("cod_404", Fault.COD_404));
+        assertEquals("\"cod\" 404 payloads should not be stored", 0, result.successes);
+    }
+
+    @Test
+    public void droppedConnectionNeverSyncs() {
+        ProfileResult result = run(FaultProfile.scripted("dropped", Fault.DROPPED_CONNECTION));
+        assertEquals("Dropped connections should not be stored", 0, result.successes);
+    }
+
+    @Test
+    public void flakyNetworkSyncsSometimes() {
+        ProfileResult result = run(FaultProfile.random("flaky", 0.3, 42L,
+                Fault.TRUNCATED_BODY, Fault.SERVER_ERROR, Fault.DROPPED_CONNECTION));
+        assertTrue("No sync got through a 30% fault rate", result.successes > 0);
+    }
+
+    /**
+     * Syncs repeatedly under the given profile. Before each sync, the table is filled with a
+     * known good forecast from a clean request, so that a failed sync can be checked for having
+     * left it alone.
+     */
+    private ProfileResult run(FaultProfile profile) {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String runsArgument = arguments.getString("faultProfileRuns");
+        int runs = runsArgument == null ? DEFAULT_RUNS : Integer.parseInt(runsArgument);
+
+        ProfileResult result = new ProfileResult(profile.name, runs);
+        for (int run = 0; run < runs; run++) {
+            mServer.setFaultProfile(FaultProfile.scripted("seed", Fault.NONE));
+            assertTrue("Couldn't seed the weather table", SunshineSyncTask.syncWeather(mContext));
+            int seededRows = countWeatherRows();
+
+            mServer.setFaultProfile(profile);
+            long start = System.nanoTime();
+            boolean synced = SunshineSyncTask.syncWeather(mContext);
+            result.latency.add(System.nanoTime() - start);
+
+            if (synced) {
+                result.successes++;
+            } else {
+                assertEquals(profile.name + ": a failed sync changed the stored weather",
+                        seededRows, countWeatherRows());
+            }
+        }
+
+        Log.i(TAG, result.toString());
+        return result;
+    }
+
+    private int countWeatherRows() {
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherContract.WeatherEntry.CONTENT_URI,
+                new String[]{WeatherContract.WeatherEntry._ID},
+                null,
+                null,
+                null);
+        if (cursor == null) return 0;
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static class ProfileResult {
+
+        final String name;
+        final int runs;
+        final LatencyStats latency = new LatencyStats();
+        int successes;
+
+        ProfileResult(String name, int runs) {
+            this.name = name;
+            this.runs = runs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: success=%d/%d (%.0f%%) %s",
+                    name, successes, runs, 100.0 * successes / runs, latency.summary());
+        }
+    }
+}
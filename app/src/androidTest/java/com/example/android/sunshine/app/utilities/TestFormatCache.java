@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.utilities;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.data.SunshinePreferences;
+import com.example.android.sunshine.utils.PollingCheck;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Checks that FormatCache hands back what the formatting utilities would, including after the
+ * units change, and that its day ends at local midnight.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestFormatCache {
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    private SharedPreferences mSharedPreferences;
+    private String mUnitsKey;
+    private String mOriginalUnits;
+    private TimeZone mOriginalTimeZone;
+
+    @Before
+    public void setUp() {
+        mSharedPreferences = PreferenceManager.getDefaultSharedPreferences(mContext);
+        mUnitsKey = mContext.getString(R.string.pref_units_key);
+        mOriginalUnits = mSharedPreferences.getString(mUnitsKey, null);
+        mOriginalTimeZone = TimeZone.getDefault();
+        setUnits(R.string.pref_units_metric, true);
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(mOriginalTimeZone);
+        SharedPreferences.Editor editor = mSharedPreferences.edit();
+        if (mOriginalUnits == null) {
+            editor.remove(mUnitsKey);
+        } else {
+            editor.putString(mUnitsKey, mOriginalUnits);
+        }
+        editor.commit();
+    }
+
+    @Test
+    public void testCachedStringsMatchUtilities() {
+        long today = SunshineDateUtils.getNormalizedUtcDateForToday();
+        for (int day = 0; day < 14; day++) {
+            long date = today + SunshineDateUtils.DAY_IN_MILLIS * day;
+            assertEquals(SunshineDateUtils.getFriendlyDateString(mContext, date, false),
+                    FormatCache.getFriendlyDateString(mContext, date, false));
+            assertEquals(SunshineDateUtils.getFriendlyDateString(mContext, date, true),
+                    FormatCache.getFriendlyDateString(mContext, date, true));
+        }
+        for (int weatherId : new int[]{200, 301, 500, 600, 701, 800, 804, 962}) {
+            assertEquals(SunshineWeatherUtils.getStringForWeatherCondition(mContext, weatherId),
+                    FormatCache.getStringForWeatherCondition(mContext, weatherId));
+        }
+    }
+
+    @Test
+    public void testRepeatedLookupIsServedFromCache() {
+        String first = FormatCache.formatTemperature(mContext, 21.25);
+        assertSame(first, FormatCache.formatTemperature(mContext, 21.25));
+    }
+
+    @Test
+    public void testUnitsChangeInvalidates() {
+        String celsius = FormatCache.formatTemperature(mContext, 30.0);
+        assertEquals(SunshineWeatherUtils.formatTemperature(mContext, 30.0), celsius);
+
+        setUnits(R.string.pref_units_imperial, false);
+        String fahrenheit = FormatCache.formatTemperature(mContext, 30.0);
+        assertEquals(SunshineWeatherUtils.formatTemperature(mContext, 30.0), fahrenheit);
+        assertEquals(celsius.replace("30", "86"), fahrenheit);
+    }
+
+    @Test
+    public void testDayEndsAtNextLocalMidnight() {
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"));
+
+        /* An ordinary winter day, late enough that an hour early would already be past */
+        assertDayEnds(localTime(2016, Calendar.JANUARY, 15, 23, 30),
+                localTime(2016, Calendar.JANUARY, 16, 0, 0));
+        assertDayEnds(localTime(2016, Calendar.JULY, 15, 23, 30),
+                localTime(2016, Calendar.JULY, 16, 0, 0));
+        /* The 23 and 25 hour days daylight saving starts and ends on */
+        assertDayEnds(localTime(2016, Calendar.MARCH, 13, 23, 30),
+                localTime(2016, Calendar.MARCH, 14, 0, 0));
+        assertDayEnds(localTime(2016, Calendar.NOVEMBER, 6, 23, 30),
+                localTime(2016, Calendar.NOVEMBER, 7, 0, 0));
+        /* Midnight itself is the start of a day, not its end */
+        assertDayEnds(localTime(2016, Calendar.JANUARY, 15, 0, 0),
+                localTime(2016, Calendar.JANUARY, 16, 0, 0));
+    }
+
+    private static void assertDayEnds(long now, long expected) {
+        long dayEnds = FormatCache.getNextLocalMidnight(now);
+        assertEquals(expected, dayEnds);
+        assertTrue(dayEnds > now);
+    }
+
+    private static long localTime(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    /*
+     * The preferences snapshot follows outside changes through a listener on the main thread, so
+     * wait for it to catch up.
+     */
+    private void setUnits(int unitsResId, final boolean metric) {
+        mSharedPreferences.edit()
+                .putString(mUnitsKey, mContext.getString(unitsResId))
+                .commit();
+        new PollingCheck() {
+            @Override
+            protected boolean check() {
+                return SunshinePreferences.isMetric(mContext) == metric;
+            }
+        }.run();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.utilities;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.weather.WeatherConditions;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * WeatherConditions is checked against the old mappings in its own tests; this checks that the
+ * app's tables turn its answers into the right resources.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestWeatherConditionResources {
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    @Test
+    public void testEveryConditionGetsItsOwnString() {
+        for (int id = WeatherConditions.FIRST_ID - 1; id <= WeatherConditions.LAST_ID + 1; id++) {
+            int condition = WeatherConditions.getCondition(id);
+            String expected;
+            if (condition == WeatherConditions.CONDITION_UNKNOWN) {
+                expected = mContext.getString(R.string.condition_unknown, id);
+            } else {
+                String name = "condition_" + WeatherConditions.getConditionName(condition);
+                int stringId = mContext.getResources()
+                        .getIdentifier(name, "string", mContext.getPackageName());
+                assertTrue("No string " + name, stringId != 0);
+                expected = mContext.getString(stringId);
+            }
+            assertEquals("Description for " + id, expected,
+                    SunshineWeatherUtils.getStringForWeatherCondition(mContext, id));
+        }
+    }
+
+    @Test
+    public void testKnownArt() {
+        assertEquals(R.drawable.ic_storm,
+                SunshineWeatherUtils.getSmallArtResourceIdForWeatherCondition(211));
+        assertEquals(R.drawable.art_fog,
+                SunshineWeatherUtils.getLargeArtResourceIdForWeatherCondition(761));
+        assertEquals(R.drawable.ic_cloudy,
+                SunshineWeatherUtils.getSmallArtResourceIdForWeatherCondition(804));
+        assertEquals(R.drawable.art_clear,
+                SunshineWeatherUtils.getLargeArtResourceIdForWeatherCondition(955));
+        /* Unknown weather has always been shown as a storm */
+        assertEquals(R.drawable.art_storm,
+                SunshineWeatherUtils.getLargeArtResourceIdForWeatherCondition(1234));
+    }
+}
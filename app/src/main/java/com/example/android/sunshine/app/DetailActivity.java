@@ -31,7 +31,7 @@ import android.view.MenuItem;
 
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.databinding.ActivityDetailBinding;
-import com.example.android.sunshine.app.utilities.SunshineDateUtils;
+import com.example.android.sunshine.app.utilities.FormatCache;
 import com.example.android.sunshine.app.utilities.SunshineWeatherUtils;
 
 public class DetailActivity extends AppCompatActivity implements
@@ -259,7 +259,7 @@ public class DetailActivity extends AppCompatActivity implements
          * SunshineDateUtils#getFriendlyDateString takes care of this for us.
          */
         long localDateMidnightGmt = data.getLong(INDEX_WEATHER_DATE);
-        String dateText = SunshineDateUtils.getFriendlyDateString(this, localDateMidnightGmt, true);
+        String dateText = FormatCache.getFriendlyDateString(this, localDateMidnightGmt, true);
 
         mDetailBinding.primaryInfo.date.setText(dateText);
 
@@ -267,7 +267,7 @@ public class DetailActivity extends AppCompatActivity implements
          * Weather Description *
          ***********************/
         /* Use the weatherId to obtain the proper description */
-        String description = SunshineWeatherUtils.getStringForWeatherCondition(this, weatherId);
+        String description = FormatCache.getStringForWeatherCondition(this, weatherId);
 
         /* Create the accessibility (a11y) String from the weather description */
         String descriptionA11y = getString(R.string.a11y_forecast, description);
@@ -289,7 +289,7 @@ public class DetailActivity extends AppCompatActivity implements
          * the temperature. This method will also append either °C or °F to the temperature
          * String.
          */
-        String highString = SunshineWeatherUtils.formatTemperature(this, highInCelsius);
+        String highString = FormatCache.formatTemperature(this, highInCelsius);
 
         /* Create the accessibility (a11y) String from the weather description */
         String highA11y = getString(R.string.a11y_high_temp, highString);
@@ -308,7 +308,7 @@ public class DetailActivity extends AppCompatActivity implements
          * the temperature. This method will also append either °C or °F to the temperature
          * String.
          */
-        String lowString = SunshineWeatherUtils.formatTemperature(this, lowInCelsius);
+        String lowString = FormatCache.formatTemperature(this, lowInCelsius);
 
         String lowA11y = getString(R.string.a11y_low_temp, lowString);
 
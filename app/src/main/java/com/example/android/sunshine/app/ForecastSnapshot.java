@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.support.v7.util.DiffUtil;
+
+import com.example.android.sunshine.app.utilities.FormatCache;
+import com.example.android.sunshine.app.utilities.SunshineWeatherUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Everything {@link ForecastAdapter} shows for the list of forecasts, read out of the database
+ * and formatted ahead of time. Building one reads the cursor, formats the dates and temperatures
+ * for the current units and locale, and resolves the icons; that all happens on a loader thread,
+ * so binding a row on the main thread is nothing but array lookups.
+ * <p>
+ * Snapshots are immutable once built. A change to the forecast, the units or the locale means a
+ * new snapshot, never an update to an old one. A snapshot can be built against the one before it,
+ * in which case it also carries the {@link DiffUtil.DiffResult} that turns the list from one into
+ * the other, so the adapter can animate just the rows that changed.
+ */
+final class ForecastSnapshot {
+
+    private static final AtomicInteger sNextId = new AtomicInteger();
+
+    /* What the adapter shows when there is no forecast to show */
+    static final ForecastSnapshot EMPTY = new ForecastSnapshot(0);
+
+    /*
+     * Identifies the snapshot a diff was computed from. An id rather than a reference, so that a
+     * snapshot doesn't keep every snapshot before it alive.
+     */
+    private final int mId = sNextId.getAndIncrement();
+    private int mDiffBaseId = -1;
+    private DiffUtil.DiffResult mDiff;
+
+    /* Normalized UTC dates, see WeatherContract.WeatherEntry#COLUMN_DATE */
+    final long[] dates;
+    final int[] weatherIds;
+
+    /* Display strings, with their content descriptions for accessibility */
+    final String[] dateStrings;
+    final String[] descriptions;
+    final String[] descriptionsA11y;
+    final String[] highStrings;
+    final String[] highsA11y;
+    final String[] lowStrings;
+    final String[] lowsA11y;
+
+    /* Icons for the "today" layout and for every other row */
+    final int[] largeIconIds;
+    final int[] smallIconIds;
+
+    private ForecastSnapshot(int count) {
+        dates = new long[count];
+        weatherIds = new int[count];
+        dateStrings = new String[count];
+        descriptions = new String[count];
+        descriptionsA11y = new String[count];
+        highStrings = new String[count];
+        highsA11y = new String[count];
+        lowStrings = new String[count];
+        lowsA11y = new String[count];
+        largeIconIds = new int[count];
+        smallIconIds = new int[count];
+    }
+
+    /**
+     * Reads and formats every row of a cursor over {@link MainActivity#MAIN_FORECAST_PROJECTION}.
+     * Formatting is the slow part, so this should not be called on the main thread. The cursor is
+     * left open.
+     *
+     * @param context Used to format for the current units and locale
+     * @param cursor  The forecast, in the order it should be shown
+     * @return A snapshot of the whole cursor
+     */
+    static ForecastSnapshot fromCursor(Context context, Cursor cursor) {
+        return fromCursor(context, cursor, null);
+    }
+
+    /**
+     * Like {@link #fromCursor(Context, Cursor)}, but also works out, by date, which rows differ
+     * from a previous snapshot. That is done here too, since it compares every row.
+     *
+     * @param context  Used to format for the current units and locale
+     * @param cursor   The forecast, in the order it should be shown
+     * @param previous The snapshot being shown before this one, or null if there is none
+     * @return A snapshot of the whole cursor
+     */
+    static ForecastSnapshot fromCursor(Context context, Cursor cursor, ForecastSnapshot previous) {
+        ForecastSnapshot snapshot = new ForecastSnapshot(cursor.getCount());
+
+        int i = 0;
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            long date = cursor.getLong(MainActivity.INDEX_WEATHER_DATE);
+            int weatherId = cursor.getInt(MainActivity.INDEX_WEATHER_CONDITION_ID);
+            double highInCelsius = cursor.getDouble(MainActivity.INDEX_WEATHER_MAX_TEMP);
+            double lowInCelsius = cursor.getDouble(MainActivity.INDEX_WEATHER_MIN_TEMP);
+
+            snapshot.dates[i] = date;
+            snapshot.weatherIds[i] = weatherId;
+
+            snapshot.dateStrings[i] =
+                    FormatCache.getFriendlyDateString(context, date, false);
+
+            String description =
+                    FormatCache.getStringForWeatherCondition(context, weatherId);
+            snapshot.descriptions[i] = description;
+            snapshot.descriptionsA11y[i] = context.getString(R.string.a11y_forecast, description);
+
+            /* formatTemperature converts to fahrenheit if need be, and appends °C or °F */
+            String highString = FormatCache.formatTemperature(context, highInCelsius);
+            snapshot.highStrings[i] = highString;
+            snapshot.highsA11y[i] = context.getString(R.string.a11y_high_temp, highString);
+
+            String lowString = FormatCache.formatTemperature(context, lowInCelsius);
+            snapshot.lowStrings[i] = lowString;
+            snapshot.lowsA11y[i] = context.getString(R.string.a11y_low_temp, lowString);
+
+            snapshot.largeIconIds[i] =
+                    SunshineWeatherUtils.getLargeArtResourceIdForWeatherCondition(weatherId);
+            snapshot.smallIconIds[i] =
+                    SunshineWeatherUtils.getSmallArtResourceIdForWeatherCondition(weatherId);
+            i++;
+        }
+
+        if (previous != null) {
+            /* Days are only ever added or dropped at either end, so there are no moves to find */
+            snapshot.mDiff = DiffUtil.calculateDiff(new DiffCallback(previous, snapshot), false);
+            snapshot.mDiffBaseId = previous.mId;
+        }
+        return snapshot;
+    }
+
+    /**
+     * @param base The snapshot currently shown
+     * @return The changes that turn base into this snapshot, or null if this snapshot wasn't
+     * built against base
+     */
+    DiffUtil.DiffResult getDiffFrom(ForecastSnapshot base) {
+        return base != null && base.mId == mDiffBaseId ? mDiff : null;
+    }
+
+    /**
+     * @return The number of days in the snapshot
+     */
+    int size() {
+        return dates.length;
+    }
+
+    /**
+     * Matches rows by date, and calls a row changed if anything it shows did.
+     * <p>
+     * The DiffResult keeps its callback, so this holds the old snapshot's arrays rather than the
+     * old snapshot itself; otherwise each snapshot would keep its whole history alive.
+     */
+    private static final class DiffCallback extends DiffUtil.Callback {
+
+        private final long[] mOldDates;
+        private final int[] mOldWeatherIds;
+        private final String[] mOldDateStrings;
+        private final String[] mOldDescriptions;
+        private final String[] mOldHighStrings;
+        private final String[] mOldLowStrings;
+        private final ForecastSnapshot mNew;
+
+        DiffCallback(ForecastSnapshot oldSnapshot, ForecastSnapshot newSnapshot) {
+            mOldDates = oldSnapshot.dates;
+            mOldWeatherIds = oldSnapshot.weatherIds;
+            mOldDateStrings = oldSnapshot.dateStrings;
+            mOldDescriptions = oldSnapshot.descriptions;
+            mOldHighStrings = oldSnapshot.highStrings;
+            mOldLowStrings = oldSnapshot.lowStrings;
+            mNew = newSnapshot;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldDates.length;
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNew.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldDates[oldItemPosition] == mNew.dates[newItemPosition];
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            /*
+             * The first row may use a layout of its own, so a day that becomes the first row (or
+             * stops being it) is redrawn even if nothing it shows changed.
+             */
+            if ((oldItemPosition == 0) != (newItemPosition == 0)) return false;
+
+            int o = oldItemPosition;
+            int n = newItemPosition;
+            return mOldWeatherIds[o] == mNew.weatherIds[n]
+                    && mOldDateStrings[o].equals(mNew.dateStrings[n])
+                    && mOldDescriptions[o].equals(mNew.descriptions[n])
+                    && mOldHighStrings[o].equals(mNew.highStrings[n])
+                    && mOldLowStrings[o].equals(mNew.lowStrings[n]);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.support.v4.content.AsyncTaskLoader;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+/**
+ * Loads the forecast from today onwards as a {@link ForecastSnapshot}. Does what a CursorLoader
+ * would, including reloading whenever the weather content changes (a sync, or a change of units,
+ * which SettingsFragment announces as a change to the weather), but hands back finished display
+ * data rather than a cursor for the adapter to read on the main thread.
+ * <p>
+ * Each snapshot after the first is diffed against the one delivered before it, here on the
+ * loader thread, so the adapter only has to dispatch the result.
+ */
+class ForecastSnapshotLoader extends AsyncTaskLoader<ForecastSnapshot> {
+
+    private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver();
+
+    private boolean mObserving;
+    /* Written on the main thread, read when a load starts on the loader thread */
+    private volatile ForecastSnapshot mSnapshot;
+
+    ForecastSnapshotLoader(Context context) {
+        super(context);
+    }
+
+    @Override
+    public ForecastSnapshot loadInBackground() {
+        Context context = getContext();
+        /* Sort order: Ascending by date */
+        String sortOrder = WeatherContract.WeatherEntry.COLUMN_DATE + " ASC";
+        String selection = WeatherContract.WeatherEntry.getSqlSelectForTodayOnwards();
+
+        Cursor cursor = context.getContentResolver().query(
+                WeatherContract.WeatherEntry.CONTENT_URI,
+                MainActivity.MAIN_FORECAST_PROJECTION,
+                selection,
+                null,
+                sortOrder);
+        if (cursor == null) {
+            return ForecastSnapshot.EMPTY;
+        }
+        try {
+            return ForecastSnapshot.fromCursor(context, cursor, mSnapshot);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public void deliverResult(ForecastSnapshot snapshot) {
+        if (isReset()) {
+            return;
+        }
+        mSnapshot = snapshot;
+        if (isStarted()) {
+            super.deliverResult(snapshot);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (!mObserving) {
+            /* Registered on the first start and kept until the loader is reset */
+            getContext().getContentResolver().registerContentObserver(
+                    WeatherContract.WeatherEntry.CONTENT_URI, true, mObserver);
+            mObserving = true;
+        }
+        if (mSnapshot != null) {
+            deliverResult(mSnapshot);
+        }
+        if (takeContentChanged() || mSnapshot == null) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        if (mObserving) {
+            getContext().getContentResolver().unregisterContentObserver(mObserver);
+            mObserving = false;
+        }
+        mSnapshot = null;
+    }
+}
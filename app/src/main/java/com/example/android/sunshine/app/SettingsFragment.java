@@ -16,17 +16,30 @@
 package com.example.android.sunshine.app;
 
 import android.app.Activity;
+import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.preference.CheckBoxPreference;
 import android.support.v7.preference.ListPreference;
 import android.support.v7.preference.Preference;
 import android.support.v7.preference.PreferenceFragmentCompat;
 import android.support.v7.preference.PreferenceScreen;
+import android.util.Log;
 
 import com.example.android.sunshine.app.data.SunshinePreferences;
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.sync.SunshineSyncUtils;
+import com.example.android.sunshine.app.sync.SyncTelemetryLog;
+import com.example.android.sunshine.app.sync.SyncTimings;
+import com.example.android.sunshine.app.utilities.FormatCache;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
 
 /**
  * The SettingsFragment serves as the display for all of the user's settings. In Sunshine, the
@@ -40,6 +53,8 @@ import com.example.android.sunshine.app.sync.SunshineSyncUtils;
 public class SettingsFragment extends PreferenceFragmentCompat implements
         SharedPreferences.OnSharedPreferenceChangeListener {
 
+    private static final String TAG = SettingsFragment.class.getSimpleName();
+
     private void setPreferenceSummary(Preference preference, Object value) {
         String stringValue = value.toString();
 
@@ -72,6 +87,107 @@ public class SettingsFragment extends PreferenceFragmentCompat implements
                 setPreferenceSummary(p, value);
             }
         }
+
+        // Debug builds get an extra section for looking into sync performance
+        if (BuildConfig.DEBUG) {
+            addPreferencesFromResource(R.xml.pref_debug);
+            findPreference(getString(R.string.pref_debug_sync_timings_key))
+                    .setOnPreferenceClickListener(new Preference.OnPreferenceClickListener() {
+                        @Override
+                        public boolean onPreferenceClick(Preference preference) {
+                            showSyncTimings();
+                            return true;
+                        }
+                    });
+            findPreference(getString(R.string.pref_debug_export_sync_timings_key))
+                    .setOnPreferenceClickListener(new Preference.OnPreferenceClickListener() {
+                        @Override
+                        public boolean onPreferenceClick(Preference preference) {
+                            exportSyncTimings();
+                            return true;
+                        }
+                    });
+            findPreference(getString(R.string.pref_debug_format_cache_key))
+                    .setOnPreferenceClickListener(new Preference.OnPreferenceClickListener() {
+                        @Override
+                        public boolean onPreferenceClick(Preference preference) {
+                            new AlertDialog.Builder(getActivity())
+                                    .setTitle(R.string.pref_debug_format_cache_label)
+                                    .setMessage(FormatCache.getStats())
+                                    .setPositiveButton(android.R.string.ok, null)
+                                    .show();
+                            return true;
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Reads the sync telemetry log off the main thread and shows its percentiles in a dialog.
+     */
+    private void showSyncTimings() {
+        final Context context = getActivity().getApplicationContext();
+        new AsyncTask<Void, Void, String>() {
+            @Override
+            protected String doInBackground(Void... voids) {
+                return SyncTelemetryLog.formatPercentiles(SyncTelemetryLog.readAll(context));
+            }
+
+            @Override
+            protected void onPostExecute(String report) {
+                if (!isAdded()) return;
+                new AlertDialog.Builder(getActivity())
+                        .setTitle(R.string.pref_debug_sync_timings_label)
+                        .setMessage(report)
+                        .setPositiveButton(android.R.string.ok, null)
+                        .show();
+            }
+        }.execute();
+    }
+
+    /**
+     * Writes the sync telemetry log as CSV to the app's external files directory, where it can
+     * be pulled with adb without root, and says in a dialog where it went or why it couldn't be
+     * written.
+     */
+    private void exportSyncTimings() {
+        final Context context = getActivity().getApplicationContext();
+        new AsyncTask<Void, Void, String>() {
+            @Override
+            protected String doInBackground(Void... voids) {
+                List<SyncTimings> records = SyncTelemetryLog.readAll(context);
+                File directory = context.getExternalFilesDir(null);
+                if (directory == null) {
+                    return context.getString(R.string.debug_export_sync_timings_failed,
+                            context.getString(R.string.debug_export_sync_timings_no_storage));
+                }
+                File csv = new File(directory, "sync_timings.csv");
+                try {
+                    Writer writer = new FileWriter(csv);
+                    try {
+                        SyncTelemetryLog.writeCsv(records, writer);
+                    } finally {
+                        writer.close();
+                    }
+                    return context.getString(R.string.debug_export_sync_timings_done,
+                            csv.getAbsolutePath());
+                } catch (IOException e) {
+                    Log.e(TAG, "Couldn't export sync timings", e);
+                    return context.getString(R.string.debug_export_sync_timings_failed,
+                            e.getMessage());
+                }
+            }
+
+            @Override
+            protected void onPostExecute(String message) {
+                if (!isAdded()) return;
+                new AlertDialog.Builder(getActivity())
+                        .setTitle(R.string.pref_debug_export_sync_timings_label)
+                        .setMessage(message)
+                        .setPositiveButton(android.R.string.ok, null)
+                        .show();
+            }
+        }.execute();
     }
 
     @Override
@@ -31,6 +31,121 @@ public final class SunshinePreferences {
     public static final String PREF_COORD_LAT = "coord_lat";
     public static final String PREF_COORD_LONG = "coord_long";
 
+    /*
+     * Every getter below is called on hot paths (isMetric, for example, for each temperature
+     * the forecast list binds). Rather than look the preference up in SharedPreferences and its
+     * key up in the resources every time, we keep every preference in an immutable Snapshot.
+     * Reading a preference is then a volatile read plus a field read, with no locking.
+     *
+     * The snapshot is replaced wholesale whenever a preference changes: by our own setters right
+     * after they write, and by sListener for changes made anywhere else, such as the settings
+     * screen.
+     */
+    private static volatile Snapshot sSnapshot;
+
+    /*
+     * SharedPreferences only keeps weak references to its listeners, so we must hold on to ours
+     * or it would be garbage collected and stop refreshing the snapshot.
+     */
+    private static SharedPreferences.OnSharedPreferenceChangeListener sListener;
+
+    /**
+     * The values of every preference at one point in time. Never changes once built.
+     */
+    public static final class Snapshot {
+
+        public final String preferredWeatherLocation;
+        public final boolean isMetric;
+        public final boolean isLocationLatLonAvailable;
+        public final double latitude;
+        public final double longitude;
+        public final boolean areNotificationsEnabled;
+        public final long lastNotificationTimeInMillis;
+
+        private Snapshot(Context context, SharedPreferences sp) {
+            preferredWeatherLocation = sp.getString(
+                    context.getString(R.string.pref_location_key),
+                    context.getString(R.string.pref_location_default));
+
+            String metric = context.getString(R.string.pref_units_metric);
+            isMetric = metric.equals(
+                    sp.getString(context.getString(R.string.pref_units_key), metric));
+
+            isLocationLatLonAvailable =
+                    sp.contains(PREF_COORD_LAT) && sp.contains(PREF_COORD_LONG);
+            /*
+             * This is a hack we have to resort to since you can't store doubles in
+             * SharedPreferences.
+             *
+             * Double.doubleToLongBits returns an integer corresponding to the bits of the given
+             * IEEE 754 double precision value.
+             *
+             * Double.longBitsToDouble does the opposite, converting a long (that represents a
+             * double) into the double itself.
+             */
+            latitude = Double.longBitsToDouble(
+                    sp.getLong(PREF_COORD_LAT, Double.doubleToRawLongBits(0.0)));
+            longitude = Double.longBitsToDouble(
+                    sp.getLong(PREF_COORD_LONG, Double.doubleToRawLongBits(0.0)));
+
+            /*
+             * In Sunshine, the user has the ability to say whether she would like notifications
+             * enabled or not. If no preference has been chosen, we want to be able to determine
+             * whether or not to show them. To do this, we reference a bool stored in bools.xml.
+             */
+            areNotificationsEnabled = sp.getBoolean(
+                    context.getString(R.string.pref_enable_notifications_key),
+                    context.getResources().getBoolean(R.bool.show_notifications_by_default));
+
+            lastNotificationTimeInMillis =
+                    sp.getLong(context.getString(R.string.pref_last_notification), 0);
+        }
+    }
+
+    /**
+     * Returns the current values of every preference. Cheap enough to call for every item bound,
+     * and consistent: all of its fields come from the same moment.
+     *
+     * @param context Used to load the preferences the first time
+     * @return The current preferences
+     */
+    public static Snapshot getSnapshot(Context context) {
+        Snapshot snapshot = sSnapshot;
+        if (snapshot == null) {
+            snapshot = load(context);
+        }
+        return snapshot;
+    }
+
+    private static synchronized Snapshot load(Context context) {
+        if (sSnapshot == null) {
+            final Context appContext = context.getApplicationContext();
+            SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(appContext);
+            sListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences sp, String key) {
+                    refresh(appContext);
+                }
+            };
+            sp.registerOnSharedPreferenceChangeListener(sListener);
+            sSnapshot = new Snapshot(appContext, sp);
+        }
+        return sSnapshot;
+    }
+
+    /**
+     * Rebuilds the snapshot from SharedPreferences, which already hold any value just written,
+     * even with apply().
+     */
+    private static synchronized void refresh(Context context) {
+        if (sSnapshot == null) {
+            load(context);
+        } else {
+            sSnapshot = new Snapshot(context.getApplicationContext(),
+                    PreferenceManager.getDefaultSharedPreferences(context));
+        }
+    }
+
     /**
      * Helper method to handle setting location details in Preferences (city name, latitude,
      * longitude)
@@ -48,6 +163,7 @@ public final class SunshinePreferences {
         editor.putLong(PREF_COORD_LAT, Double.doubleToRawLongBits(lat));
         editor.putLong(PREF_COORD_LONG, Double.doubleToRawLongBits(lon));
         editor.apply();
+        refresh(context);
     }
 
     /**
@@ -62,6 +178,7 @@ public final class SunshinePreferences {
         editor.remove(PREF_COORD_LAT);
         editor.remove(PREF_COORD_LONG);
         editor.apply();
+        refresh(context);
     }
 
     /**
@@ -74,12 +191,7 @@ public final class SunshinePreferences {
      * "94043,USA" if SharedPreferences have not been implemented yet.
      */
     public static String getPreferredWeatherLocation(Context context) {
-        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
-
-        String keyForLocation = context.getString(R.string.pref_location_key);
-        String defaultLocation = context.getString(R.string.pref_location_default);
-
-        return sp.getString(keyForLocation, defaultLocation);
+        return getSnapshot(context).preferredWeatherLocation;
     }
 
     /**
@@ -89,19 +201,7 @@ public final class SunshinePreferences {
      * @return true if metric display should be used, false if imperial display should be used
      */
     public static boolean isMetric(Context context) {
-        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
-
-        String keyForUnits = context.getString(R.string.pref_units_key);
-        String defaultUnits = context.getString(R.string.pref_units_metric);
-        String preferredUnits = sp.getString(keyForUnits, defaultUnits);
-        String metric = context.getString(R.string.pref_units_metric);
-
-        boolean userPrefersMetric = false;
-        if (metric.equals(preferredUnits)) {
-            userPrefersMetric = true;
-        }
-
-        return userPrefersMetric;
+        return getSnapshot(context).isMetric;
     }
 
     /**
@@ -113,25 +213,8 @@ public final class SunshinePreferences {
      * @return an array containing the two coordinate values for the user's preferred location
      */
     public static double[] getLocationCoordinates(Context context) {
-        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
-
-        double[] preferredCoordinates = new double[2];
-
-        /*
-         * This is a hack we have to resort to since you can't store doubles in SharedPreferences.
-         *
-         * Double.doubleToLongBits returns an integer corresponding to the bits of the given
-         * IEEE 754 double precision value.
-         *
-         * Double.longBitsToDouble does the opposite, converting a long (that represents a double)
-         * into the double itself.
-         */
-        preferredCoordinates[0] = Double
-                 .longBitsToDouble(sp.getLong(PREF_COORD_LAT, Double.doubleToRawLongBits(0.0)));
-        preferredCoordinates[1] = Double
-                .longBitsToDouble(sp.getLong(PREF_COORD_LONG, Double.doubleToRawLongBits(0.0)));
-
-        return preferredCoordinates;
+        Snapshot snapshot = getSnapshot(context);
+        return new double[]{snapshot.latitude, snapshot.longitude};
     }
 
     /**
@@ -142,17 +225,7 @@ public final class SunshinePreferences {
      * @return true if lat/long are saved in SharedPreferences
      */
     public static boolean isLocationLatLonAvailable(Context context) {
-        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
-
-        boolean spContainLatitude = sp.contains(PREF_COORD_LAT);
-        boolean spContainLongitude = sp.contains(PREF_COORD_LONG);
-
-        boolean spContainBothLatitudeAndLongitude = false;
-        if (spContainLatitude && spContainLongitude) {
-            spContainBothLatitudeAndLongitude = true;
-        }
-
-        return spContainBothLatitudeAndLongitude;
+        return getSnapshot(context).isLocationLatLonAvailable;
     }
 
     /**
@@ -163,26 +236,7 @@ public final class SunshinePreferences {
      * @return true if the user prefers to see notifications, false otherwise
      */
     public static boolean areNotificationsEnabled(Context context) {
-        /* Key for accessing the preference for showing notifications */
-        String displayNotificationsKey = context.getString(R.string.pref_enable_notifications_key);
-
-        /*
-         * In Sunshine, the user has the ability to say whether she would like notifications
-         * enabled or not. If no preference has been chosen, we want to be able to determine
-         * whether or not to show them. To do this, we reference a bool stored in bools.xml.
-         */
-        boolean shouldDisplayNotificationsByDefault = context
-                .getResources()
-                .getBoolean(R.bool.show_notifications_by_default);
-
-        /* As usual, we use the default SharedPreferences to access the user's preferences */
-        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
-
-        /* If a value is stored with the key, we extract it here. If not, use a default. */
-        boolean shouldDisplayNotifications = sp
-                .getBoolean(displayNotificationsKey, shouldDisplayNotificationsByDefault);
-
-        return shouldDisplayNotifications;
+        return getSnapshot(context).areNotificationsEnabled;
     }
 
     /**
@@ -192,25 +246,13 @@ public final class SunshinePreferences {
      * @return UNIX time of when the last notification was shown
      */
     public static long getLastNotificationTimeInMillis(Context context) {
-        /* Key for accessing the time at which Sunshine last displayed a notification */
-        String lastNotificationKey = context.getString(R.string.pref_last_notification);
-
-        /* As usual, we use the default SharedPreferences to access the user's preferences */
-        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
-
         /*
-         * Here, we retrieve the time in milliseconds when the last notification was shown. If
-         * SharedPreferences doesn't have a value for lastNotificationKey, we return 0. The reason
-         * we return 0 is because we compare the value returned from this method to the current
-         * system time. If the difference between the last notification time and the current time
-         * is greater than one day, we will show a notification again. When we compare the two
-         * values, we subtract the last notification time from the current system time. If the
-         * time of the last notification was 0, the difference will always be greater than the
-         * number of milliseconds in a day and we will show another notification.
+         * If no notification was ever shown, this is 0. The reason we return 0 is because we
+         * compare the value returned from this method to the current system time. If the time of
+         * the last notification was 0, the difference will always be greater than the number of
+         * milliseconds in a day and we will show another notification.
          */
-        long lastNotificationTime = sp.getLong(lastNotificationKey, 0);
-
-        return lastNotificationTime;
+        return getSnapshot(context).lastNotificationTimeInMillis;
     }
 
     /**
@@ -241,5 +283,6 @@ public final class SunshinePreferences {
         String lastNotificationKey = context.getString(R.string.pref_last_notification);
         editor.putLong(lastNotificationKey, timeOfNotification);
         editor.apply();
+        refresh(context);
     }
 }
\ No newline at end of file
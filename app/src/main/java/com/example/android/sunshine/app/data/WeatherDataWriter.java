@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.android.sunshine.app.utilities.SunshineDateUtils;
+
+/**
+ * Replaces the stored forecast with a new one in a single transaction. Until {@link #commit()}
+ * is called, readers keep seeing the old forecast, and if the writer is aborted instead (say,
+ * because the sync was canceled halfway), the old forecast is left exactly as it was.
+ * <p>
+ * A writer must be used from the thread that created it, since that's the thread SQLite ties
+ * the transaction to. Typical use:
+ * <pre>
+ * WeatherDataWriter writer = WeatherDataWriter.begin(context);
+ * try {
+ *     writer.deleteAll();
+ *     for (ContentValues values : forecast) writer.insert(values);
+ *     writer.commit();
+ * } finally {
+ *     writer.abort();
+ * }
+ * </pre>
+ */
+public final class WeatherDataWriter {
+
+    private final Context mContext;
+    private final SQLiteDatabase mDatabase;
+
+    private boolean mFinished;
+    private int mRowsInserted;
+
+    private WeatherDataWriter(Context context, SQLiteDatabase database) {
+        mContext = context;
+        mDatabase = database;
+    }
+
+    /**
+     * Starts a transaction on the shared weather database.
+     *
+     * @param context Used to reach the database and, on commit, to notify observers
+     * @return A writer for the new transaction
+     */
+    public static WeatherDataWriter begin(Context context) {
+        SQLiteDatabase database = WeatherDbHelper.getInstance(context).getWritableDatabase();
+        database.beginTransaction();
+        return new WeatherDataWriter(context.getApplicationContext(), database);
+    }
+
+    /**
+     * Deletes every stored weather row, within the transaction.
+     *
+     * @return The number of rows deleted
+     */
+    public int deleteAll() {
+        checkNotFinished();
+        /* "1" rather than null, so that SQLite tells us how many rows went */
+        return mDatabase.delete(WeatherContract.WeatherEntry.TABLE_NAME, "1", null);
+    }
+
+    /**
+     * Inserts one day of weather, within the transaction.
+     *
+     * @param values A row, in the same form WeatherProvider's bulkInsert takes
+     * @return true if the row was inserted
+     */
+    public boolean insert(ContentValues values) {
+        checkNotFinished();
+        long weatherDate = values.getAsLong(WeatherContract.WeatherEntry.COLUMN_DATE);
+        if (!SunshineDateUtils.isDateNormalized(weatherDate)) {
+            throw new IllegalArgumentException("Date must be normalized to insert");
+        }
+
+        long id = mDatabase.insert(WeatherContract.WeatherEntry.TABLE_NAME, null, values);
+        if (id == -1) return false;
+        mRowsInserted++;
+        return true;
+    }
+
+    /**
+     * Makes the changes visible and tells anyone watching the weather that it changed.
+     *
+     * @return The number of rows inserted
+     */
+    public int commit() {
+        checkNotFinished();
+        mFinished = true;
+        try {
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+        }
+        mContext.getContentResolver()
+                .notifyChange(WeatherContract.WeatherEntry.CONTENT_URI, null);
+        return mRowsInserted;
+    }
+
+    /**
+     * Throws away the changes. Does nothing if the writer was already committed or aborted, so
+     * it's safe to call from a finally block.
+     */
+    public void abort() {
+        if (mFinished) return;
+        mFinished = true;
+        mDatabase.endTransaction();
+    }
+
+    private void checkNotFinished() {
+        if (mFinished) {
+            throw new IllegalStateException("This writer was already committed or aborted");
+        }
+    }
+}
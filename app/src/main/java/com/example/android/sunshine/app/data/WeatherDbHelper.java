@@ -45,10 +45,28 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
      */
     private static final int DATABASE_VERSION = 3;
 
+    private static WeatherDbHelper sInstance;
+
+    /**
+     * Tests use this to get a helper of their own. Everything else should use
+     * {@link #getInstance(Context)}, so that the ContentProvider and the sync write through the
+     * same connection and their transactions can't trip over each other.
+     */
     public WeatherDbHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
 
+    /**
+     * @param context Any Context; only its application Context is kept
+     * @return The helper shared by the whole process
+     */
+    public static synchronized WeatherDbHelper getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WeatherDbHelper(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
     /**
      * Called when the database is created for the first time. This is where the creation of
      * tables and the initial population of the tables should happen.
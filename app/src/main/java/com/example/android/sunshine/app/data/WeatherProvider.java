@@ -119,9 +119,10 @@ public class WeatherProvider extends ContentProvider {
         /*
          * As noted in the comment above, onCreate is run on the main thread, so performing any
          * lengthy operations will cause lag in your app. Since WeatherDbHelper's constructor is
-         * very lightweight, we are safe to perform that initialization here.
+         * very lightweight, we are safe to perform that initialization here. The helper is shared
+         * with the sync, which writes whole forecasts through WeatherDataWriter.
          */
-        mOpenHelper = new WeatherDbHelper(getContext());
+        mOpenHelper = WeatherDbHelper.getInstance(getContext());
         return true;
     }
 
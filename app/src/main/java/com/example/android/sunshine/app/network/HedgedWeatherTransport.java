@@ -0,0 +1,394 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.network;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends each request to a primary server and, if the primary hasn't started answering within a
+ * hedge delay, sends the same query to a secondary server as well. Whichever answers first is
+ * used and the other request is canceled.
+ * <p>
+ * The hedge delay adapts to how the primary has been doing: it is a percentile (95th by default)
+ * of the primary's recent time to first byte. A slow primary that's usually slow won't trigger a
+ * hedge on every request, while one that's stuck well beyond its usual time will.
+ * <p>
+ * Requests whose URL doesn't start with the primary base URL are passed through unhedged.
+ */
+public class HedgedWeatherTransport implements WeatherTransport {
+
+    private static final String TAG = HedgedWeatherTransport.class.getSimpleName();
+
+    /* How many recent primary response times the hedge delay is computed from */
+    private static final int SAMPLE_WINDOW = 32;
+    /* Until we have this many samples, we don't trust the percentile and use the default delay */
+    private static final int MIN_SAMPLES = 5;
+
+    private static final long DEFAULT_HEDGE_DELAY_MILLIS = 3000;
+    private static final long DEFAULT_MIN_HEDGE_DELAY_MILLIS = 250;
+    private static final double DEFAULT_HEDGE_PERCENTILE = 95;
+
+    /* Threads for the attempts themselves; the caller's thread waits on whichever answers first */
+    private static final ExecutorService sAttemptExecutor =
+            Executors.newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger mCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, TAG + "-" + mCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final WeatherTransport mDelegate;
+    private final String mPrimaryBaseUrl;
+    private final String mSecondaryBaseUrl;
+
+    private volatile double mHedgePercentile = DEFAULT_HEDGE_PERCENTILE;
+    private volatile long mMinHedgeDelayNanos =
+            TimeUnit.MILLISECONDS.toNanos(DEFAULT_MIN_HEDGE_DELAY_MILLIS);
+    private volatile long mDefaultHedgeDelayNanos =
+            TimeUnit.MILLISECONDS.toNanos(DEFAULT_HEDGE_DELAY_MILLIS);
+
+    /*
+     * Ring buffer of the primary's recent times to first byte, guarded by this. A primary that
+     * failed or lost to the secondary is in as a lower bound: the time it had taken when it
+     * ended, and at least the hedge delay it was given. Leaving those out would leave only the
+     * fast responses, and the hedge delay would keep falling.
+     */
+    private final long[] mPrimarySamples = new long[SAMPLE_WINDOW];
+    private int mPrimarySampleCount;
+    private int mNextPrimarySample;
+
+    /* Counters reported by getStats(), guarded by this */
+    private int mRequests;
+    private int mHedges;
+    private int mSecondaryWins;
+    private long mEstimatedSavedNanos;
+
+    /**
+     * @param delegate         Performs the actual requests, normally an HttpWeatherTransport
+     * @param primaryBaseUrl   The server requests are normally sent to
+     * @param secondaryBaseUrl The server to hedge to, queried with the same parameters
+     */
+    public HedgedWeatherTransport(WeatherTransport delegate, String primaryBaseUrl,
+                                  String secondaryBaseUrl) {
+        mDelegate = delegate;
+        mPrimaryBaseUrl = primaryBaseUrl;
+        mSecondaryBaseUrl = secondaryBaseUrl;
+    }
+
+    /**
+     * @param percentile Percentile of recent primary response times, between 0 and 100, that
+     *                   the primary gets before the secondary is also asked
+     * @return This transport, for chaining
+     */
+    public HedgedWeatherTransport setHedgePercentile(double percentile) {
+        mHedgePercentile = Math.max(0, Math.min(100, percentile));
+        return this;
+    }
+
+    /**
+     * @param minDelayMillis     The hedge delay never goes below this, so that a run of fast
+     *                           responses doesn't make us hedge at the first hiccup
+     * @param defaultDelayMillis The hedge delay used until enough responses have been seen
+     * @return This transport, for chaining
+     */
+    public HedgedWeatherTransport setHedgeDelayBounds(long minDelayMillis,
+                                                      long defaultDelayMillis) {
+        mMinHedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+        mDefaultHedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(defaultDelayMillis);
+        return this;
+    }
+
+    @Override
+    public WeatherCall newCall(URL url) {
+        String spec = url.toString();
+        if (!spec.startsWith(mPrimaryBaseUrl)) {
+            return mDelegate.newCall(url);
+        }
+
+        URL secondaryUrl;
+        try {
+            secondaryUrl = new URL(mSecondaryBaseUrl + spec.substring(mPrimaryBaseUrl.length()));
+        } catch (MalformedURLException e) {
+            Log.w(TAG, "Can't build secondary URL for " + url, e);
+            return mDelegate.newCall(url);
+        }
+        return new HedgedCall(mDelegate.newCall(url), mDelegate.newCall(secondaryUrl));
+    }
+
+    /**
+     * @return The delay, in nanoseconds, the next request's primary gets before hedging
+     */
+    public synchronized long getHedgeDelayNanos() {
+        if (mPrimarySampleCount < MIN_SAMPLES) {
+            return mDefaultHedgeDelayNanos;
+        }
+        long[] sorted = Arrays.copyOf(mPrimarySamples, mPrimarySampleCount);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(mHedgePercentile / 100.0 * sorted.length);
+        long delay = sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+        return Math.max(mMinHedgeDelayNanos, delay);
+    }
+
+    /**
+     * @return A snapshot of how often we hedged and what it bought us
+     */
+    public synchronized Stats getStats() {
+        return new Stats(mRequests, mHedges, mSecondaryWins, mEstimatedSavedNanos);
+    }
+
+    private synchronized void recordPrimarySample(long nanos) {
+        mPrimarySamples[mNextPrimarySample] = nanos;
+        mNextPrimarySample = (mNextPrimarySample + 1) % SAMPLE_WINDOW;
+        mPrimarySampleCount = Math.min(SAMPLE_WINDOW, mPrimarySampleCount + 1);
+    }
+
+    private synchronized void recordOutcome(boolean hedged, boolean secondaryWon,
+                                            long elapsedNanos) {
+        mRequests++;
+        if (hedged) mHedges++;
+        if (!secondaryWon) return;
+        mSecondaryWins++;
+
+        /*
+         * We canceled the primary, so we'll never know how long it would have taken. All we know
+         * is that it would have taken longer than elapsedNanos. Estimate it as the average of
+         * the recent primary responses that were at least that slow; if there were none, we
+         * claim no savings rather than make a number up.
+         */
+        long slowerSum = 0;
+        int slowerCount = 0;
+        for (int i = 0; i < mPrimarySampleCount; i++) {
+            if (mPrimarySamples[i] > elapsedNanos) {
+                slowerSum += mPrimarySamples[i];
+                slowerCount++;
+            }
+        }
+        if (slowerCount > 0) {
+            mEstimatedSavedNanos += slowerSum / slowerCount - elapsedNanos;
+        }
+    }
+
+    /**
+     * Counts describing how hedging has behaved since the transport was created.
+     */
+    public static final class Stats {
+
+        /* Hedgeable requests made */
+        public final int requests;
+        /* Requests for which the secondary was also asked */
+        public final int hedges;
+        /* Requests answered by the secondary */
+        public final int secondaryWins;
+        /* Rough estimate of the total time saved by the secondary wins, in nanoseconds */
+        public final long estimatedSavedNanos;
+
+        Stats(int requests, int hedges, int secondaryWins, long estimatedSavedNanos) {
+            this.requests = requests;
+            this.hedges = hedges;
+            this.secondaryWins = secondaryWins;
+            this.estimatedSavedNanos = estimatedSavedNanos;
+        }
+
+        /**
+         * @return The fraction of requests that were hedged, between 0 and 1
+         */
+        public double getHedgeRate() {
+            return requests == 0 ? 0 : hedges / (double) requests;
+        }
+
+        @Override
+        public String toString() {
+            return "requests=" + requests
+                    + " hedges=" + hedges
+                    + " secondaryWins=" + secondaryWins
+                    + " savedMs=" + TimeUnit.NANOSECONDS.toMillis(estimatedSavedNanos);
+        }
+    }
+
+    /**
+     * One hedged request. The attempts run on sAttemptExecutor and report back here; the thread
+     * calling execute() waits for the first good answer, or for both attempts to fail.
+     */
+    private class HedgedCall implements WeatherCall {
+
+        private static final int PRIMARY = 0;
+        private static final int SECONDARY = 1;
+
+        private final WeatherCall[] mAttempts;
+
+        /* All guarded by this */
+        private final boolean[] mStarted = new boolean[2];
+        private final boolean[] mFinished = new boolean[2];
+        private InputStream mWinningStream;
+        private int mWinner = -1;
+        private IOException mFailure;
+        private boolean mCanceled;
+        private long mHedgeDelayNanos;
+
+        HedgedCall(WeatherCall primary, WeatherCall secondary) {
+            mAttempts = new WeatherCall[]{primary, secondary};
+        }
+
+        @Override
+        public InputStream execute() throws IOException {
+            long startNanos = System.nanoTime();
+            long hedgeDelayNanos = getHedgeDelayNanos();
+
+            boolean hedged;
+            synchronized (this) {
+                if (mCanceled) throw new IOException("Canceled");
+                mHedgeDelayNanos = hedgeDelayNanos;
+                start(PRIMARY, startNanos);
+
+                long deadline = startNanos + hedgeDelayNanos;
+                while (mWinner == -1 && !mFinished[PRIMARY] && !mCanceled) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    waitNanos(remaining);
+                }
+
+                /*
+                 * Hedge if the primary is running late, and also if it has already failed: the
+                 * secondary is then simply a fallback.
+                 */
+                hedged = mWinner == -1 && !mCanceled;
+                if (hedged) {
+                    start(SECONDARY, startNanos);
+                }
+
+                while (mWinner == -1 && !mCanceled && !allStartedAttemptsFinished()) {
+                    waitNanos(0);
+                }
+
+                if (mWinner == -1) {
+                    recordOutcome(hedged, false, System.nanoTime() - startNanos);
+                    if (mCanceled) throw new IOException("Canceled");
+                    throw mFailure;
+                }
+            }
+
+            recordOutcome(hedged, mWinner == SECONDARY, System.nanoTime() - startNanos);
+            return mWinningStream;
+        }
+
+        /* Must hold this */
+        private boolean allStartedAttemptsFinished() {
+            return mFinished[PRIMARY] && (!mStarted[SECONDARY] || mFinished[SECONDARY]);
+        }
+
+        /* Must hold this */
+        private void start(final int which, final long startNanos) {
+            mStarted[which] = true;
+            sAttemptExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    attempt(which, startNanos);
+                }
+            });
+        }
+
+        private void attempt(int which, long startNanos) {
+            InputStream stream = null;
+            IOException failure = null;
+            try {
+                stream = mAttempts[which].execute();
+            } catch (IOException e) {
+                failure = e;
+            }
+
+            long elapsedNanos = System.nanoTime() - startNanos;
+
+            boolean lost;
+            long primarySampleNanos = -1;
+            synchronized (this) {
+                mFinished[which] = true;
+                lost = mWinner != -1 || mCanceled;
+                /* A primary the caller canceled says nothing about how fast the primary is */
+                if (which == PRIMARY && !(mCanceled && mWinner == -1)) {
+                    primarySampleNanos = stream != null
+                            ? elapsedNanos
+                            : Math.max(elapsedNanos, mHedgeDelayNanos);
+                }
+                if (stream != null && !lost) {
+                    mWinner = which;
+                    mWinningStream = stream;
+                    /* Cancel the other attempt; it's no longer needed */
+                    mAttempts[1 - which].cancel();
+                } else if (failure != null && mFailure == null) {
+                    mFailure = failure;
+                }
+                notifyAll();
+            }
+
+            if (primarySampleNanos >= 0) {
+                recordPrimarySample(primarySampleNanos);
+            }
+
+            if (stream != null && lost) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                    /* We don't want this response anyway */
+                }
+            }
+        }
+
+        /* Must hold this */
+        private void waitNanos(long nanos) throws IOException {
+            try {
+                if (nanos == 0) {
+                    wait();
+                } else {
+                    TimeUnit.NANOSECONDS.timedWait(this, nanos);
+                }
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted");
+            }
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                mCanceled = true;
+                notifyAll();
+            }
+            mAttempts[PRIMARY].cancel();
+            mAttempts[SECONDARY].cancel();
+        }
+
+        @Override
+        public synchronized boolean isCanceled() {
+            return mCanceled;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.network;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The live transport. Every call opens an {@link HttpURLConnection} to the weather server.
+ */
+public class HttpWeatherTransport implements WeatherTransport {
+
+    /*
+     * Without timeouts, a server that accepts the connection and then never answers would stall
+     * the sync forever. These are generous enough for a slow mobile network.
+     */
+    private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(15);
+    private static final int DEFAULT_READ_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(20);
+
+    private final int mConnectTimeoutMillis;
+    private final int mReadTimeoutMillis;
+
+    public HttpWeatherTransport() {
+        this(DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param connectTimeoutMillis How long to wait for the connection to be established
+     * @param readTimeoutMillis    How long to wait for each read, including the first byte
+     */
+    public HttpWeatherTransport(int connectTimeoutMillis, int readTimeoutMillis) {
+        mConnectTimeoutMillis = connectTimeoutMillis;
+        mReadTimeoutMillis = readTimeoutMillis;
+    }
+
+    @Override
+    public WeatherCall newCall(URL url) {
+        return new HttpWeatherCall(url, mConnectTimeoutMillis, mReadTimeoutMillis);
+    }
+
+    private static class HttpWeatherCall implements WeatherCall {
+
+        private final URL mUrl;
+        private final int mConnectTimeoutMillis;
+        private final int mReadTimeoutMillis;
+
+        private volatile HttpURLConnection mConnection;
+        private volatile boolean mCanceled;
+
+        HttpWeatherCall(URL url, int connectTimeoutMillis, int readTimeoutMillis) {
+            mUrl = url;
+            mConnectTimeoutMillis = connectTimeoutMillis;
+            mReadTimeoutMillis = readTimeoutMillis;
+        }
+
+        @Override
+        public InputStream execute() throws IOException {
+            if (mCanceled) throw new IOException("Canceled");
+
+            HttpURLConnection urlConnection = (HttpURLConnection) mUrl.openConnection();
+            urlConnection.setConnectTimeout(mConnectTimeoutMillis);
+            urlConnection.setReadTimeout(mReadTimeoutMillis);
+            mConnection = urlConnection;
+
+            /*
+             * cancel() may have run between the check above and publishing the connection, in
+             * which case it had nothing to disconnect. Check again now that it's visible.
+             */
+            if (mCanceled) {
+                urlConnection.disconnect();
+                throw new IOException("Canceled");
+            }
+
+            try {
+                return new ConnectionInputStream(urlConnection);
+            } catch (IOException e) {
+                urlConnection.disconnect();
+                if (mCanceled) throw new IOException("Canceled", e);
+                throw e;
+            }
+        }
+
+        @Override
+        public void cancel() {
+            mCanceled = true;
+            HttpURLConnection urlConnection = mConnection;
+            if (urlConnection != null) {
+                /* Closes the socket, which unblocks any thread stuck connecting or reading */
+                urlConnection.disconnect();
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return mCanceled;
+        }
+    }
+
+    /**
+     * Releases the connection when the body is closed, so callers only ever deal with a stream.
+     */
+    private static class ConnectionInputStream extends FilterInputStream {
+
+        private final HttpURLConnection mConnection;
+
+        ConnectionInputStream(HttpURLConnection connection) throws IOException {
+            super(connection.getInputStream());
+            mConnection = connection;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                mConnection.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.network;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+
+/**
+ * Wraps another transport and writes every complete response it sees to a directory, so that it
+ * can later be served by a {@link ReplayWeatherTransport}. Responses are only kept if they were
+ * read all the way to the end; a cancelled or failed download never leaves a partial recording.
+ */
+public class RecordingWeatherTransport implements WeatherTransport {
+
+    private static final String TAG = RecordingWeatherTransport.class.getSimpleName();
+
+    /* Recorded responses end with this extension. Anything else in the directory is ignored. */
+    static final String RECORDING_EXTENSION = ".json";
+
+    /*
+     * The API key is left out of the recording's name so that recordings made with one key can
+     * be replayed in a build that uses another.
+     */
+    private static final String API_KEY_PARAM = "api_key";
+
+    private final WeatherTransport mDelegate;
+    private final File mDirectory;
+
+    /**
+     * @param delegate  The transport that actually performs the requests
+     * @param directory Where recordings are written. Created if it doesn't exist.
+     */
+    public RecordingWeatherTransport(WeatherTransport delegate, File directory) {
+        mDelegate = delegate;
+        mDirectory = directory;
+    }
+
+    @Override
+    public WeatherCall newCall(URL url) {
+        final WeatherCall call = mDelegate.newCall(url);
+        final File recording = getRecordingFile(mDirectory, url);
+
+        return new WeatherCall() {
+            @Override
+            public InputStream execute() throws IOException {
+                InputStream in = call.execute();
+                if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+                    Log.w(TAG, "Can't create " + mDirectory + ", not recording");
+                    return in;
+                }
+                try {
+                    return new TeeInputStream(in, recording);
+                } catch (IOException e) {
+                    /* Failing to record shouldn't fail the request itself */
+                    Log.w(TAG, "Can't record to " + recording, e);
+                    return in;
+                }
+            }
+
+            @Override
+            public void cancel() {
+                call.cancel();
+            }
+
+            @Override
+            public boolean isCanceled() {
+                return call.isCanceled();
+            }
+        };
+    }
+
+    /**
+     * Returns the file a response for the given URL is recorded to (or replayed from).
+     *
+     * @param directory The recordings directory
+     * @param url       The request URL
+     * @return The recording file for that URL, whether it exists or not
+     */
+    static File getRecordingFile(File directory, URL url) {
+        String query = url.getQuery();
+        StringBuilder key = new StringBuilder(url.getPath());
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (!parameter.startsWith(API_KEY_PARAM + "=")) {
+                    key.append('&').append(parameter);
+                }
+            }
+        }
+        String name = Integer.toHexString(key.toString().hashCode());
+        return new File(directory, name + RECORDING_EXTENSION);
+    }
+
+    /**
+     * Copies everything that is read into a temporary file, which replaces the recording once
+     * the end of the stream has been reached.
+     */
+    private static class TeeInputStream extends FilterInputStream {
+
+        private final File mRecording;
+        private final File mPartial;
+        private OutputStream mOut;
+        private boolean mReachedEnd;
+
+        TeeInputStream(InputStream in, File recording) throws IOException {
+            super(in);
+            mRecording = recording;
+            mPartial = new File(recording.getPath() + ".partial");
+            mOut = new FileOutputStream(mPartial);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1) {
+                mReachedEnd = true;
+            } else if (mOut != null) {
+                mOut.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            int read = super.read(buffer, offset, count);
+            if (read == -1) {
+                mReachedEnd = true;
+            } else if (mOut != null) {
+                mOut.write(buffer, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            /* Skipped bytes would be missing from the recording, so read them instead */
+            byte[] buffer = new byte[(int) Math.min(n, 4096)];
+            int read = read(buffer, 0, buffer.length);
+            return read == -1 ? 0 : read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (mOut != null) {
+                    mOut.close();
+                    mOut = null;
+                    if (mReachedEnd && mPartial.renameTo(mRecording)) {
+                        Log.v(TAG, "Recorded " + mRecording);
+                    } else {
+                        mPartial.delete();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.network;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves responses previously written by a {@link RecordingWeatherTransport}, without touching
+ * the network. To get closer to what a phone actually sees, a fixed latency can be added before
+ * the first byte and the body can be throttled to a given bandwidth.
+ */
+public class ReplayWeatherTransport implements WeatherTransport {
+
+    /* Throttled bodies are handed out in slices of this size, so the pacing stays smooth */
+    private static final int THROTTLE_CHUNK_BYTES = 1024;
+
+    private final File mSource;
+
+    private volatile long mLatencyMillis;
+    private volatile long mBytesPerSecond;
+
+    /**
+     * @param source Either a directory of recordings, in which case the recording matching each
+     *               request's URL is served, or a single recording that is served for every
+     *               request regardless of its URL.
+     */
+    public ReplayWeatherTransport(File source) {
+        mSource = source;
+    }
+
+    /**
+     * @param latencyMillis How long each call waits before its body can be read. 0 disables it.
+     * @return This transport, for chaining
+     */
+    public ReplayWeatherTransport setLatencyMillis(long latencyMillis) {
+        mLatencyMillis = latencyMillis;
+        return this;
+    }
+
+    /**
+     * @param bytesPerSecond The rate at which bodies are delivered. 0 means as fast as possible.
+     * @return This transport, for chaining
+     */
+    public ReplayWeatherTransport setBandwidth(long bytesPerSecond) {
+        mBytesPerSecond = bytesPerSecond;
+        return this;
+    }
+
+    @Override
+    public WeatherCall newCall(URL url) {
+        File recording = mSource.isDirectory()
+                ? RecordingWeatherTransport.getRecordingFile(mSource, url)
+                : mSource;
+        return new ReplayWeatherCall(recording, mLatencyMillis, mBytesPerSecond);
+    }
+
+    private static class ReplayWeatherCall implements WeatherCall {
+
+        private final File mRecording;
+        private final long mLatencyMillis;
+        private final long mBytesPerSecond;
+
+        /* Counted down once, by cancel(). Sleeping on it makes every delay cancellable. */
+        private final CountDownLatch mCanceled = new CountDownLatch(1);
+
+        private volatile InputStream mBody;
+
+        ReplayWeatherCall(File recording, long latencyMillis, long bytesPerSecond) {
+            mRecording = recording;
+            mLatencyMillis = latencyMillis;
+            mBytesPerSecond = bytesPerSecond;
+        }
+
+        @Override
+        public InputStream execute() throws IOException {
+            if (!mRecording.isFile()) {
+                throw new FileNotFoundException("No recording at " + mRecording);
+            }
+
+            sleep(mLatencyMillis);
+
+            InputStream body = new FileInputStream(mRecording);
+            if (mBytesPerSecond > 0) {
+                body = new ThrottledInputStream(body);
+            }
+            mBody = body;
+            if (isCanceled()) {
+                body.close();
+                throw new IOException("Canceled");
+            }
+            return body;
+        }
+
+        @Override
+        public void cancel() {
+            mCanceled.countDown();
+            InputStream body = mBody;
+            if (body != null) {
+                try {
+                    body.close();
+                } catch (IOException ignored) {
+                    /* Nothing left to release */
+                }
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return mCanceled.getCount() == 0;
+        }
+
+        private void sleep(long millis) throws IOException {
+            if (millis <= 0) {
+                if (isCanceled()) throw new IOException("Canceled");
+                return;
+            }
+            try {
+                if (mCanceled.await(millis, TimeUnit.MILLISECONDS)) {
+                    throw new IOException("Canceled");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        /**
+         * Limits reads so that, on average, no more than mBytesPerSecond are delivered.
+         */
+        private class ThrottledInputStream extends FilterInputStream {
+
+            private final long mStartNanos = System.nanoTime();
+            private long mBytesRead;
+
+            ThrottledInputStream(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                int read = read(single, 0, 1);
+                return read == -1 ? -1 : single[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int count) throws IOException {
+                if (isCanceled()) throw new IOException("Canceled");
+
+                int read = super.read(buffer, offset, Math.min(count, THROTTLE_CHUNK_BYTES));
+                if (read > 0) {
+                    mBytesRead += read;
+                    long dueMillis = mBytesRead * 1000 / mBytesPerSecond;
+                    long elapsedMillis =
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mStartNanos);
+                    sleep(dueMillis - elapsedMillis);
+                }
+                return read;
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.network;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A single request made through a {@link WeatherTransport}.
+ */
+public interface WeatherCall {
+
+    /**
+     * Sends the request and blocks until the response body is ready to be read. Closing the
+     * returned stream releases the underlying connection.
+     *
+     * @return The body of the response
+     * @throws IOException If the request failed or the call was cancelled
+     */
+    InputStream execute() throws IOException;
+
+    /**
+     * Cancels this call. This is safe to call from any thread, at any point. If the call is
+     * blocked connecting or reading, the blocked thread will get an IOException.
+     */
+    void cancel();
+
+    /**
+     * @return true if {@link #cancel()} has been called
+     */
+    boolean isCanceled();
+}
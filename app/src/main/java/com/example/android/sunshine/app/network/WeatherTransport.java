@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.network;
+
+import java.net.URL;
+
+/**
+ * A WeatherTransport is what NetworkUtils uses to actually get bytes from a weather server. The
+ * default implementation talks HTTP, but the sync pipeline can just as well be fed from
+ * recordings on disk, which makes it possible to measure and test a sync without a network.
+ *
+ * @see HttpWeatherTransport
+ * @see RecordingWeatherTransport
+ * @see ReplayWeatherTransport
+ */
+public interface WeatherTransport {
+
+    /**
+     * Prepares a request for the given URL. Nothing is sent until {@link WeatherCall#execute()}
+     * is called on the returned call.
+     *
+     * @param url The URL to fetch the weather response from
+     * @return A call that can be executed once and cancelled from any thread
+     */
+    WeatherCall newCall(URL url);
+}
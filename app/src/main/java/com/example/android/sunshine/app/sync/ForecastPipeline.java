@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.ContentValues;
+import android.content.Context;
+
+import com.example.android.sunshine.app.data.SunshinePreferences;
+import com.example.android.sunshine.app.data.WeatherDataWriter;
+import com.example.android.sunshine.app.network.CountingInputStream;
+import com.example.android.sunshine.app.utilities.NetworkUtils;
+import com.example.android.sunshine.app.utilities.OpenWeatherJsonStreamParser;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads, parses and stores a forecast with the three overlapping, instead of one after the
+ * other. A parser thread reads the response as it arrives and hands days over in small batches
+ * through a bounded queue; the calling thread writes each batch into an open transaction as soon
+ * as it gets it. Peak memory is a few batches, not the whole response, and a large response
+ * costs little more than its download time.
+ * <p>
+ * Like the sequential sync, the stored forecast is only replaced if the whole response parsed
+ * and was a valid forecast; otherwise the transaction is rolled back.
+ * <p>
+ * SyncTimings are kept on the calling thread, so with the pipeline the phases mean: connect is
+ * waiting for the response to start, download is waiting for the next batch, delete and insert
+ * are writing. Parsing happens on the parser thread, hidden behind the other phases, and isn't
+ * timed separately.
+ */
+final class ForecastPipeline {
+
+    /* Days per batch handed from the parser to the writer */
+    private static final int BATCH_SIZE = 8;
+    /* Batches that can wait in the queue before the parser has to wait for the writer */
+    private static final int QUEUE_CAPACITY = 4;
+    /* How often a waiting thread checks whether the other side gave up */
+    private static final long POLL_MILLIS = 100;
+
+    private static final ExecutorService sParserExecutor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    return new Thread(runnable, "SunshineSyncParser");
+                }
+            });
+
+    /**
+     * What travels through the queue: a batch of days, or, last of all, how parsing ended.
+     */
+    private static final class Batch {
+        final ContentValues[] days;
+        final int count;
+        final OpenWeatherJsonStreamParser.Result result;
+        final IOException failure;
+
+        Batch(ContentValues[] days, int count) {
+            this.days = days;
+            this.count = count;
+            this.result = null;
+            this.failure = null;
+        }
+
+        Batch(OpenWeatherJsonStreamParser.Result result, IOException failure) {
+            this.days = null;
+            this.count = 0;
+            this.result = result;
+            this.failure = failure;
+        }
+
+        boolean isLast() {
+            return days == null;
+        }
+    }
+
+    private ForecastPipeline() {
+    }
+
+    /**
+     * @return Whether the pipeline can run on this device
+     */
+    static boolean isSupported() {
+        return OpenWeatherJsonStreamParser.isSupported();
+    }
+
+    /**
+     * Fetches the forecast at the given URL and, if it's valid, replaces the stored forecast with
+     * it. Runs the writing on the calling thread, which is where the transaction lives.
+     *
+     * @param context      Used to reach the database and preferences
+     * @param url          The forecast to fetch
+     * @param timings      Receives the time spent waiting and writing
+     * @param cancellation Stops the pipeline and rolls back the transaction when canceled
+     * @return true if a new forecast was stored
+     * @throws IOException If the request or the parsing failed
+     */
+    static boolean run(Context context, URL url, SyncTimings timings,
+                       SyncCancellation cancellation) throws IOException {
+        final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        /*
+         * The request gets a cancellation of its own: the writer also needs to stop the parser
+         * when it fails, and that must not look like the whole sync was canceled. It's a child of
+         * the sync's, so that canceling the sync still closes the socket, even while connecting
+         * or waiting for the first byte.
+         */
+        final SyncCancellation streamCancellation = cancellation.newChild();
+
+        timings.begin(SyncTimings.PHASE_CONNECT);
+        cancellation.throwIfCanceled();
+        final CountingInputStream in = NetworkUtils.openResponseStream(url, streamCancellation);
+
+        sParserExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                produce(in, queue, streamCancellation);
+            }
+        });
+
+        WeatherDataWriter writer = null;
+        boolean done = false;
+        try {
+            while (true) {
+                timings.begin(SyncTimings.PHASE_DOWNLOAD);
+                Batch batch = take(queue, cancellation);
+
+                if (batch.isLast()) {
+                    done = true;
+                    if (batch.failure != null) throw batch.failure;
+                    if (!batch.result.isValid() || writer == null) return false;
+
+                    SunshinePreferences.setLocationDetails(context,
+                            batch.result.latitude, batch.result.longitude);
+                    timings.begin(SyncTimings.PHASE_INSERT);
+                    writer.commit();
+                    return true;
+                }
+
+                if (writer == null) {
+                    /* Only open the transaction once there's something to put in it */
+                    writer = WeatherDataWriter.begin(context);
+                    timings.begin(SyncTimings.PHASE_DELETE);
+                    writer.deleteAll();
+                }
+
+                timings.begin(SyncTimings.PHASE_INSERT);
+                for (int i = 0; i < batch.count; i++) {
+                    writer.insert(batch.days[i]);
+                }
+            }
+        } finally {
+            if (writer != null) {
+                writer.abort();
+            }
+            if (!done) {
+                /* Unblocks the parser, whether it's reading the socket or waiting on the queue */
+                streamCancellation.cancel();
+            }
+            timings.addBytesDownloaded(in.getCount());
+        }
+    }
+
+    /**
+     * Runs on the parser thread: parses the response into batches and queues them, then queues
+     * how parsing ended. Always closes the stream.
+     */
+    private static void produce(CountingInputStream in, final BlockingQueue<Batch> queue,
+                                final SyncCancellation streamCancellation) {
+        OpenWeatherJsonStreamParser.Result result = null;
+        IOException failure = null;
+        try {
+            final ContentValues[][] pending = {new ContentValues[BATCH_SIZE]};
+            final int[] pendingCount = {0};
+
+            result = OpenWeatherJsonStreamParser.parse(in,
+                    new OpenWeatherJsonStreamParser.Callback() {
+                        @Override
+                        public void onDay(ContentValues weatherValues) throws IOException {
+                            pending[0][pendingCount[0]++] = weatherValues;
+                            if (pendingCount[0] == BATCH_SIZE) {
+                                put(queue, new Batch(pending[0], BATCH_SIZE), streamCancellation);
+                                pending[0] = new ContentValues[BATCH_SIZE];
+                                pendingCount[0] = 0;
+                            }
+                        }
+                    });
+
+            if (pendingCount[0] > 0) {
+                put(queue, new Batch(pending[0], pendingCount[0]), streamCancellation);
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            /* JsonReader reports some malformed JSON with IllegalStateException */
+            failure = new IOException("Malformed forecast", e);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                /* We have everything we wanted from it */
+            }
+        }
+
+        try {
+            put(queue, new Batch(result, failure), streamCancellation);
+        } catch (IOException e) {
+            /* The writer gave up, so nobody is waiting for this */
+        }
+    }
+
+    /**
+     * Queues a batch, waiting for room, unless the writer gives up first.
+     */
+    private static void put(BlockingQueue<Batch> queue, Batch batch,
+                            SyncCancellation streamCancellation) throws IOException {
+        try {
+            while (!queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (streamCancellation.isCanceled()) {
+                    throw new InterruptedIOException("Writer gave up");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted");
+        }
+    }
+
+    /**
+     * Takes the next batch, waiting for the parser, unless the sync is canceled first.
+     */
+    private static Batch take(BlockingQueue<Batch> queue, SyncCancellation cancellation)
+            throws IOException {
+        try {
+            Batch batch;
+            do {
+                cancellation.throwIfCanceled();
+                batch = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } while (batch == null);
+            return batch;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted");
+        }
+    }
+}
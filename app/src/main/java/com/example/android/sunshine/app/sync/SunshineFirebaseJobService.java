@@ -15,9 +15,6 @@
  */
 package com.example.android.sunshine.app.sync;
 
-import android.content.Context;
-import android.os.AsyncTask;
-
 import com.firebase.jobdispatcher.Job;
 import com.firebase.jobdispatcher.JobParameters;
 import com.firebase.jobdispatcher.JobService;
@@ -26,43 +23,45 @@ import com.firebase.jobdispatcher.RetryStrategy;
 
 public class SunshineFirebaseJobService extends JobService {
 
-    private AsyncTask<Void, Void, Void> mFetchWeatherTask;
+    private SyncCancellation mSyncCancellation;
 
     /**
      * The entry point to your Job. Implementations should offload work to another thread of
      * execution as soon as possible.
      *
      * This is called by the Job Dispatcher to tell us we should start our job. Keep in mind this
-     * method is run on the application's main thread, so we need to offload work to a background
-     * thread.
+     * method is run on the application's main thread, so we hand the sync to the SyncExecutor,
+     * which runs it on the same background thread as every other sync.
      *
      * @return whether there is more work remaining.
      */
     @Override
     public boolean onStartJob(final JobParameters jobParameters) {
 
-        mFetchWeatherTask = new AsyncTask<Void, Void, Void>(){
+        mSyncCancellation = SyncExecutor.submit(this, new SyncExecutor.Callback() {
             @Override
-            protected Void doInBackground(Void... voids) {
-                Context context = getApplicationContext();
-                SunshineSyncTask.syncWeather(context);
-                jobFinished(jobParameters, false);
-                return null;
-            }
+            public void onSyncFinished(boolean synced, SyncCancellation cancellation) {
+                /*
+                 * A canceled job was stopped by the dispatcher, which already heard from us
+                 * through onStopJob; we must not finish it a second time.
+                 */
+                if (cancellation.isCanceled()) return;
+                if (mSyncCancellation == cancellation) {
+                    mSyncCancellation = null;
+                }
 
-            @Override
-            protected void onPostExecute(Void aVoid) {
-                jobFinished(jobParameters, false);
+                /* If we didn't get fresh weather, ask to be retried with backoff */
+                jobFinished(jobParameters, !synced);
             }
-        };
-
-        mFetchWeatherTask.execute();
+        });
         return true;
     }
 
     /**
      * Called when the scheduling engine has decided to interrupt the execution of a running job,
      * most likely because the runtime constraints associated with the job are no longer satisfied.
+     * Canceling the sync closes its connection, if it's mid-request, and rolls back its database
+     * transaction, if it's mid-write.
      *
      * @return whether the job should be retried
      * @see Job.Builder#setRetryStrategy(RetryStrategy)
@@ -70,9 +69,10 @@ public class SunshineFirebaseJobService extends JobService {
      */
     @Override
     public boolean onStopJob(JobParameters jobParameters) {
-        if (mFetchWeatherTask != null) {
-            mFetchWeatherTask.cancel(true);
+        if (mSyncCancellation != null) {
+            mSyncCancellation.cancel();
+            mSyncCancellation = null;
         }
         return true;
     }
-}
\ No newline at end of file
+}
@@ -15,21 +15,31 @@
  */
 package com.example.android.sunshine.app.sync;
 
-import android.app.IntentService;
+import android.app.Service;
 import android.content.Intent;
+import android.os.IBinder;
 
 /**
- * An {@link IntentService} subclass for handling asynchronous task requests in
- * a service on a separate handler thread.
+ * Runs an immediate sync. This used to be an IntentService with a thread of its own; it now
+ * hands each request to the SyncExecutor, so it shares its sync thread with the
+ * SunshineFirebaseJobService, and stops itself once the last request it was given is done.
  */
-public class SunshineSyncIntentService extends IntentService {
+public class SunshineSyncIntentService extends Service {
 
-    public SunshineSyncIntentService() {
-        super("SunshineSyncIntentService");
+    @Override
+    public int onStartCommand(Intent intent, int flags, final int startId) {
+        SyncExecutor.submit(this, new SyncExecutor.Callback() {
+            @Override
+            public void onSyncFinished(boolean synced, SyncCancellation cancellation) {
+                /* Only stops the service if no request newer than this one came in since */
+                stopSelf(startId);
+            }
+        });
+        return START_NOT_STICKY;
     }
 
     @Override
-    protected void onHandleIntent(Intent intent) {
-        SunshineSyncTask.syncWeather(this);
+    public IBinder onBind(Intent intent) {
+        return null;
     }
-}
\ No newline at end of file
+}
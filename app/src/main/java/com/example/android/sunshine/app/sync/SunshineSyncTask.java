@@ -15,21 +15,39 @@
  */
 package com.example.android.sunshine.app.sync;
 
-import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
 import android.text.format.DateUtils;
+import android.util.Log;
 
 import com.example.android.sunshine.app.data.SunshinePreferences;
-import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherDataWriter;
 import com.example.android.sunshine.app.utilities.NetworkUtils;
 import com.example.android.sunshine.app.utilities.NotificationUtils;
 import com.example.android.sunshine.app.utilities.OpenWeatherJsonUtils;
+import com.example.android.sunshine.app.watchface_sync.WatchfaceSyncService;
 
 import java.net.URL;
+import java.util.concurrent.CancellationException;
 
 public class SunshineSyncTask {
 
+    private static final String TAG = SunshineSyncTask.class.getSimpleName();
+
+    /* Whether to use the ForecastPipeline on devices that support it */
+    private static volatile boolean sPipelinedSyncEnabled = true;
+
+    /**
+     * Chooses between the pipelined sync, which downloads, parses and stores the forecast all at
+     * once, and the sequential one. Mostly useful for comparing the two in benchmarks; devices
+     * older than Honeycomb always sync sequentially.
+     *
+     * @param enabled Whether to pipeline syncs where possible
+     */
+    public static void setPipelinedSyncEnabled(boolean enabled) {
+        sPipelinedSyncEnabled = enabled;
+    }
+
     /**
      * Performs the network request for updated weather, parses the JSON from that request, and
      * inserts the new weather information into our ContentProvider. Will notify the user that new
@@ -37,10 +55,45 @@ public class SunshineSyncTask {
      * AND they haven't disabled notifications in the preferences screen.
      *
      * @param context Used to access utility methods and the ContentResolver
+     * @return true if fresh weather was downloaded and stored, false otherwise
+     */
+    public static boolean syncWeather(Context context) {
+        return syncWeather(context, new SyncCancellation());
+    }
+
+    /**
+     * Same as {@link #syncWeather(Context)}, but can be canceled from another thread.
+     *
+     * @param context      Used to access utility methods and the ContentResolver
+     * @param cancellation Canceling it stops the sync and leaves the stored weather untouched
+     * @return true if fresh weather was downloaded and stored, false otherwise
+     */
+    public static boolean syncWeather(Context context, SyncCancellation cancellation) {
+        SyncTimings timings = new SyncTimings();
+        boolean synced = syncWeather(context, timings, cancellation);
+        SyncTelemetryLog.append(context, timings);
+        return synced;
+    }
+
+    /**
+     * Same as {@link #syncWeather(Context)}, but also records how long each phase of the sync
+     * took into the given SyncTimings.
+     *
+     * @param context Used to access utility methods and the ContentResolver
+     * @param timings Receives the time spent in each phase of this sync
+     * @return true if fresh weather was downloaded and stored, false otherwise
      */
-    synchronized public static void syncWeather(Context context) {
+    public static boolean syncWeather(Context context, SyncTimings timings) {
+        return syncWeather(context, timings, new SyncCancellation());
+    }
+
+    synchronized private static boolean syncWeather(Context context, SyncTimings timings,
+                                                    SyncCancellation cancellation) {
 
         try {
+            cancellation.throwIfCanceled();
+
+            timings.begin(SyncTimings.PHASE_BUILD_URL);
             /*
              * The getUrl method will return the URL that we need to get the forecast JSON for the
              * weather. It will decide whether to create a URL based off of the latitude and
@@ -48,38 +101,20 @@ public class SunshineSyncTask {
              */
             URL weatherRequestUrl = NetworkUtils.getUrl(context);
 
-            /* Use the URL to retrieve the JSON */
-            String jsonWeatherResponse = NetworkUtils.getResponseFromHttpUrl(weatherRequestUrl);
-
-            /* Parse the JSON into a list of weather values */
-            ContentValues[] weatherValues = OpenWeatherJsonUtils
-                    .getWeatherContentValuesFromJson(context, jsonWeatherResponse);
-
             /*
-             * In cases where our JSON contained an error code, getWeatherContentValuesFromJson
-             * would have returned null. We need to check for those cases here to prevent any
-             * NullPointerExceptions being thrown. We also have no reason to insert fresh data if
-             * there isn't any to insert.
+             * Fetch, parse and store the new forecast. Where we can, we do all three at once,
+             * each on its own thread; otherwise, one after the other.
              */
-            if (weatherValues != null && weatherValues.length != 0) {
-                /* Get a handle on the ContentResolver to delete and insert data */
-                ContentResolver sunshineContentResolver = context.getContentResolver();
-
-                /* Delete old weather data because we don't need to keep multiple days' data */
-                sunshineContentResolver.delete(
-                        WeatherContract.WeatherEntry.CONTENT_URI,
-                        null,
-                        null);
-
-                /* Insert our new weather data into Sunshine's ContentProvider */
-                sunshineContentResolver.bulkInsert(
-                        WeatherContract.WeatherEntry.CONTENT_URI,
-                        weatherValues);
+            boolean stored = sPipelinedSyncEnabled && ForecastPipeline.isSupported()
+                    ? ForecastPipeline.run(context, weatherRequestUrl, timings, cancellation)
+                    : fetchAndStoreForecast(context, weatherRequestUrl, timings, cancellation);
 
+            if (stored) {
                 /*
                  * Finally, after we insert data into the ContentProvider, determine whether or not
                  * we should notify the user that the weather has been refreshed.
                  */
+                timings.begin(SyncTimings.PHASE_NOTIFY);
                 boolean notificationsEnabled = SunshinePreferences.areNotificationsEnabled(context);
 
                 /*
@@ -104,13 +139,83 @@ public class SunshineSyncTask {
                     NotificationUtils.notifyUserOfNewWeather(context);
                 }
 
-            /* If the code reaches this point, we have successfully performed our sync */
+                timings.end();
 
+                /*
+                 * Let the watch face know there's new weather. This only queues the update on the
+                 * watch publisher's own thread, which sends nothing unless the forecast the watch
+                 * would show has changed, so it isn't timed as part of the sync.
+                 */
+                WatchfaceSyncService.getInstance(context).updateWatchface();
+
+                /* If the code reaches this point, we have successfully performed our sync */
+                timings.setSucceeded(true);
+                return true;
             }
 
+        } catch (CancellationException e) {
+            Log.i(TAG, "Sync canceled");
         } catch (Exception e) {
-            /* Server probably invalid */
-            e.printStackTrace();
+            /* Server probably invalid, or the sync was canceled mid-request */
+            if (!cancellation.isCanceled()) {
+                e.printStackTrace();
+            }
+        } finally {
+            timings.end();
+        }
+        return false;
+    }
+
+    /**
+     * The sequential sync: downloads the whole response, parses it, then replaces the stored
+     * forecast.
+     *
+     * @return true if a new forecast was stored
+     */
+    private static boolean fetchAndStoreForecast(Context context, URL weatherRequestUrl,
+                                                 SyncTimings timings,
+                                                 SyncCancellation cancellation)
+            throws Exception {
+        /* Use the URL to retrieve the JSON */
+        String jsonWeatherResponse = NetworkUtils
+                .getResponseFromHttpUrl(weatherRequestUrl, timings, cancellation);
+        cancellation.throwIfCanceled();
+
+        /* Parse the JSON into a list of weather values */
+        timings.begin(SyncTimings.PHASE_PARSE);
+        ContentValues[] weatherValues = OpenWeatherJsonUtils
+                .getWeatherContentValuesFromJson(context, jsonWeatherResponse);
+
+        /*
+         * In cases where our JSON contained an error code, getWeatherContentValuesFromJson
+         * would have returned null. We need to check for those cases here to prevent any
+         * NullPointerExceptions being thrown. We also have no reason to insert fresh data if
+         * there isn't any to insert.
+         */
+        if (weatherValues == null || weatherValues.length == 0) {
+            return false;
+        }
+
+        /*
+         * Replace the old weather with the new in one transaction, so that nobody ever sees an
+         * empty forecast, and so that a sync canceled halfway leaves the old forecast in place.
+         */
+        WeatherDataWriter writer = WeatherDataWriter.begin(context);
+        try {
+            /* Delete old weather data because we don't need to keep multiple days' data */
+            timings.begin(SyncTimings.PHASE_DELETE);
+            writer.deleteAll();
+
+            /* Insert our new weather data */
+            timings.begin(SyncTimings.PHASE_INSERT);
+            for (ContentValues values : weatherValues) {
+                cancellation.throwIfCanceled();
+                writer.insert(values);
+            }
+            writer.commit();
+            return true;
+        } finally {
+            writer.abort();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import com.example.android.sunshine.app.network.WeatherCall;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Lets one thread cancel a sync running on another. Unlike interrupting the sync thread, which
+ * does nothing to a thread blocked reading from a socket, canceling also cancels the request in
+ * flight, closing its socket. The sync notices at its next check and rolls back whatever it had
+ * written.
+ */
+public final class SyncCancellation {
+
+    private volatile boolean mCanceled;
+    private WeatherCall mCall;
+    /* Canceled along with this one; see newChild */
+    private List<SyncCancellation> mChildren;
+
+    /**
+     * Cancels the sync. Safe to call from any thread, any number of times.
+     */
+    public void cancel() {
+        WeatherCall call;
+        List<SyncCancellation> children;
+        synchronized (this) {
+            mCanceled = true;
+            call = mCall;
+            children = mChildren;
+            mChildren = null;
+        }
+        if (call != null) {
+            call.cancel();
+        }
+        if (children != null) {
+            for (SyncCancellation child : children) {
+                child.cancel();
+            }
+        }
+    }
+
+    /**
+     * Makes a cancellation for part of the sync. Canceling this one cancels the child too, along
+     * with any request registered with it, but the child can also be canceled on its own without
+     * canceling the sync.
+     *
+     * @return The child; already canceled if this one is
+     */
+    public SyncCancellation newChild() {
+        SyncCancellation child = new SyncCancellation();
+        synchronized (this) {
+            if (!mCanceled) {
+                if (mChildren == null) {
+                    mChildren = new ArrayList<>();
+                }
+                mChildren.add(child);
+                return child;
+            }
+        }
+        child.cancel();
+        return child;
+    }
+
+    public boolean isCanceled() {
+        return mCanceled;
+    }
+
+    /**
+     * @throws CancellationException If the sync was canceled
+     */
+    public void throwIfCanceled() {
+        if (mCanceled) {
+            throw new CancellationException("Sync canceled");
+        }
+    }
+
+    /**
+     * Registers the request the sync is about to make, so that canceling the sync cancels it too.
+     * If the sync was already canceled, the request is canceled right away.
+     *
+     * @param call The request, or null once it's done
+     */
+    public void setCall(WeatherCall call) {
+        synchronized (this) {
+            mCall = call;
+            if (!mCanceled || call == null) return;
+        }
+        call.cancel();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The one thread every sync runs on, whichever entry point asked for it. Syncs can't run in
+ * parallel anyway (SunshineSyncTask is synchronized), so a single thread costs nothing in
+ * throughput and means the app never has more than one sync thread alive.
+ */
+final class SyncExecutor {
+
+    /**
+     * Told, on the main thread, how a sync submitted with {@link #submit} went.
+     */
+    interface Callback {
+        /**
+         * @param synced       Whether fresh weather was stored
+         * @param cancellation The cancellation for the sync, to check whether it was canceled
+         */
+        void onSyncFinished(boolean synced, SyncCancellation cancellation);
+    }
+
+    private static final ExecutorService sExecutor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    return new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "SunshineSync");
+                }
+            });
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    private SyncExecutor() {
+    }
+
+    /**
+     * Queues a sync.
+     *
+     * @param context  Used by the sync; only its application Context is kept
+     * @param callback Told on the main thread when the sync is done
+     * @return Cancels the sync, whether it's still queued or already running
+     */
+    static SyncCancellation submit(Context context, final Callback callback) {
+        final Context appContext = context.getApplicationContext();
+        final SyncCancellation cancellation = new SyncCancellation();
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final boolean synced = !cancellation.isCanceled()
+                        && SunshineSyncTask.syncWeather(appContext, cancellation);
+                sMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onSyncFinished(synced, cancellation);
+                    }
+                });
+            }
+        });
+        return cancellation;
+    }
+}
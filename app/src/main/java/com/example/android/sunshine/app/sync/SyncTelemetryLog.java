@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the {@link SyncTimings} of the last {@link #CAPACITY} syncs in a file, so that we can
+ * look at where sync time goes on a real device, over days of real use.
+ * <p>
+ * The file is a fixed-size ring buffer: a small header followed by CAPACITY fixed-size records.
+ * Each sync overwrites the oldest record in place, so the file never grows and appending costs
+ * the same no matter how many syncs came before: the record is built in memory and written in
+ * one go, then the header's count and position are updated with a second small write.
+ */
+public final class SyncTelemetryLog {
+
+    private static final String TAG = SyncTelemetryLog.class.getSimpleName();
+
+    private static final String FILE_NAME = "sync_telemetry.bin";
+
+    /* How many syncs we keep */
+    public static final int CAPACITY = 200;
+
+    private static final int MAGIC = 0x53594e43; // "SYNC"
+    /* Bump when the record layout or the phases change; older files are then discarded */
+    private static final int VERSION = 2;
+
+    /* magic, version, capacity, phase count, record count, index of the next record to write */
+    private static final int HEADER_SIZE = 6 * 4;
+    /* start time, bytes downloaded, succeeded, then the nanos of each phase */
+    private static final int RECORD_SIZE = 8 + 8 + 1 + 8 * SyncTimings.PHASE_COUNT;
+
+    private static final int HEADER_COUNT_OFFSET = 4 * 4;
+
+    private SyncTelemetryLog() {
+    }
+
+    /**
+     * Saves the timings of a sync, replacing the oldest saved sync if the log is full. Failures
+     * are logged and otherwise ignored; telemetry must never break a sync.
+     *
+     * @param context Used to find the log file
+     * @param timings The timings to save
+     */
+    public static synchronized void append(Context context, SyncTimings timings) {
+        try {
+            RandomAccessFile file = open(context);
+            try {
+                file.seek(HEADER_COUNT_OFFSET);
+                int count = Math.max(0, Math.min(CAPACITY, file.readInt()));
+                int next = Math.max(0, Math.min(CAPACITY - 1, file.readInt()));
+
+                /* Laid out as RandomAccessFile's readLong and readBoolean expect */
+                ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+                record.putLong(timings.getStartTimeMillis());
+                record.putLong(timings.getBytesDownloaded());
+                record.put((byte) (timings.hasSucceeded() ? 1 : 0));
+                for (int phase = 0; phase < SyncTimings.PHASE_COUNT; phase++) {
+                    record.putLong(timings.getPhaseNanos(phase));
+                }
+                file.seek(HEADER_SIZE + (long) next * RECORD_SIZE);
+                file.write(record.array());
+
+                ByteBuffer header = ByteBuffer.allocate(2 * 4);
+                header.putInt(Math.min(CAPACITY, count + 1));
+                header.putInt((next + 1) % CAPACITY);
+                file.seek(HEADER_COUNT_OFFSET);
+                file.write(header.array());
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Couldn't save sync timings", e);
+        }
+    }
+
+    /**
+     * @param context Used to find the log file
+     * @return The saved timings, oldest first. Empty if nothing was saved or the log can't be
+     * read.
+     */
+    public static synchronized List<SyncTimings> readAll(Context context) {
+        List<SyncTimings> records = new ArrayList<>();
+        try {
+            RandomAccessFile file = open(context);
+            try {
+                file.seek(HEADER_COUNT_OFFSET);
+                int count = Math.max(0, Math.min(CAPACITY, file.readInt()));
+                int next = Math.max(0, Math.min(CAPACITY - 1, file.readInt()));
+
+                /* With a full log, the oldest record is the one we'd overwrite next */
+                int first = count < CAPACITY ? 0 : next;
+                for (int i = 0; i < count; i++) {
+                    file.seek(HEADER_SIZE + (long) ((first + i) % CAPACITY) * RECORD_SIZE);
+                    SyncTimings timings = new SyncTimings(file.readLong());
+                    timings.addBytesDownloaded(file.readLong());
+                    timings.setSucceeded(file.readBoolean());
+                    for (int phase = 0; phase < SyncTimings.PHASE_COUNT; phase++) {
+                        timings.setPhaseNanos(phase, file.readLong());
+                    }
+                    records.add(timings);
+                }
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Couldn't read sync timings", e);
+        }
+        return records;
+    }
+
+    /**
+     * Summarizes the given syncs as one line per phase, e.g.
+     * "connect     p50 120.0  p90 340.5  p99 1200.3  max 1500.0 ms"
+     *
+     * @param records Timings as returned by {@link #readAll(Context)}
+     * @return A human readable, multi-line report
+     */
+    public static String formatPercentiles(List<SyncTimings> records) {
+        int succeeded = 0;
+        long[] bytes = new long[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            if (records.get(i).hasSucceeded()) succeeded++;
+            bytes[i] = records.get(i).getBytesDownloaded();
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.US, "%d syncs, %d succeeded\n\n",
+                records.size(), succeeded));
+
+        long[] nanos = new long[records.size()];
+        for (int phase = 0; phase <= SyncTimings.PHASE_COUNT; phase++) {
+            for (int i = 0; i < records.size(); i++) {
+                SyncTimings timings = records.get(i);
+                nanos[i] = phase == SyncTimings.PHASE_COUNT
+                        ? timings.getTotalNanos()
+                        : timings.getPhaseNanos(phase);
+            }
+            Arrays.sort(nanos);
+            String name = phase == SyncTimings.PHASE_COUNT
+                    ? "total"
+                    : SyncTimings.getPhaseName(phase);
+            report.append(String.format(Locale.US,
+                    "%-10s p50 %.1f  p90 %.1f  p99 %.1f  max %.1f ms\n",
+                    name,
+                    millis(percentile(nanos, 50)),
+                    millis(percentile(nanos, 90)),
+                    millis(percentile(nanos, 99)),
+                    millis(percentile(nanos, 100))));
+        }
+
+        Arrays.sort(bytes);
+        report.append(String.format(Locale.US, "\nresponse p50 %d  max %d bytes",
+                percentile(bytes, 50), percentile(bytes, 100)));
+        return report.toString();
+    }
+
+    /**
+     * Writes the given syncs as CSV, one row per sync, with a header row.
+     *
+     * @param records Timings as returned by {@link #readAll(Context)}
+     * @param writer  Where to write the CSV. Not closed.
+     */
+    public static void writeCsv(List<SyncTimings> records, Writer writer) throws IOException {
+        writer.write("start_time_millis,succeeded,bytes");
+        for (int phase = 0; phase < SyncTimings.PHASE_COUNT; phase++) {
+            writer.write("," + SyncTimings.getPhaseName(phase) + "_ns");
+        }
+        writer.write(",total_ns\n");
+
+        for (SyncTimings timings : records) {
+            StringBuilder row = new StringBuilder();
+            row.append(timings.getStartTimeMillis())
+                    .append(',').append(timings.hasSucceeded() ? 1 : 0)
+                    .append(',').append(timings.getBytesDownloaded());
+            for (int phase = 0; phase < SyncTimings.PHASE_COUNT; phase++) {
+                row.append(',').append(timings.getPhaseNanos(phase));
+            }
+            row.append(',').append(timings.getTotalNanos()).append('\n');
+            writer.write(row.toString());
+        }
+    }
+
+    /**
+     * Opens the log file, creating it, or starting it over if it was written by a different
+     * version of this class.
+     */
+    private static RandomAccessFile open(Context context) throws IOException {
+        File path = new File(context.getFilesDir(), FILE_NAME);
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try {
+            boolean valid = file.length() == HEADER_SIZE + (long) CAPACITY * RECORD_SIZE
+                    && file.readInt() == MAGIC
+                    && file.readInt() == VERSION
+                    && file.readInt() == CAPACITY
+                    && file.readInt() == SyncTimings.PHASE_COUNT;
+            if (!valid) {
+                file.setLength(HEADER_SIZE + (long) CAPACITY * RECORD_SIZE);
+                file.seek(0);
+                file.writeInt(MAGIC);
+                file.writeInt(VERSION);
+                file.writeInt(CAPACITY);
+                file.writeInt(SyncTimings.PHASE_COUNT);
+                file.writeInt(0);
+                file.writeInt(0);
+            }
+            return file;
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
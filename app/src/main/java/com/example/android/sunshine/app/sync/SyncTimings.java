@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+/**
+ * Records how long each phase of a single sync took, how many bytes it downloaded and whether it
+ * succeeded. Phases are timed with {@link System#nanoTime()}, which is monotonic, so the numbers
+ * aren't thrown off by the wall clock changing mid-sync.
+ */
+public final class SyncTimings {
+
+    /* Building the request URL from the user's preferences */
+    public static final int PHASE_BUILD_URL = 0;
+    /* Connecting to the server and waiting for the response to start */
+    public static final int PHASE_CONNECT = 1;
+    /* Reading the body of the response */
+    public static final int PHASE_DOWNLOAD = 2;
+    /* Parsing the JSON response into ContentValues */
+    public static final int PHASE_PARSE = 3;
+    /* Deleting the old weather data */
+    public static final int PHASE_DELETE = 4;
+    /* Inserting the new weather data */
+    public static final int PHASE_INSERT = 5;
+    /* Deciding whether to notify, and notifying */
+    public static final int PHASE_NOTIFY = 6;
+
+    public static final int PHASE_COUNT = 7;
+
+    private static final String[] PHASE_NAMES = {
+            "build_url",
+            "connect",
+            "download",
+            "parse",
+            "delete",
+            "insert",
+            "notify",
+    };
+
+    private final long[] mPhaseNanos = new long[PHASE_COUNT];
+
+    private final long mStartTimeMillis;
+    private long mBytesDownloaded;
+    private boolean mSucceeded;
+
+    private int mCurrentPhase = -1;
+    private long mCurrentPhaseStartNanos;
+
+    public SyncTimings() {
+        this(System.currentTimeMillis());
+    }
+
+    /**
+     * Used to restore timings that were saved by {@link SyncTelemetryLog}.
+     */
+    SyncTimings(long startTimeMillis) {
+        mStartTimeMillis = startTimeMillis;
+    }
+
+    /**
+     * Starts timing the given phase. If another phase is being timed, it is ended first.
+     *
+     * @param phase One of the PHASE_ constants
+     */
+    public void begin(int phase) {
+        long now = System.nanoTime();
+        endAt(now);
+        mCurrentPhase = phase;
+        mCurrentPhaseStartNanos = now;
+    }
+
+    /**
+     * Ends the phase currently being timed, if any.
+     */
+    public void end() {
+        endAt(System.nanoTime());
+    }
+
+    private void endAt(long now) {
+        if (mCurrentPhase != -1) {
+            mPhaseNanos[mCurrentPhase] += now - mCurrentPhaseStartNanos;
+            mCurrentPhase = -1;
+        }
+    }
+
+    /**
+     * @param phase One of the PHASE_ constants
+     * @return Time spent in that phase, in nanoseconds. 0 if the phase never ran.
+     */
+    public long getPhaseNanos(int phase) {
+        return mPhaseNanos[phase];
+    }
+
+    /**
+     * Used to restore timings that were saved by {@link SyncTelemetryLog}.
+     */
+    void setPhaseNanos(int phase, long nanos) {
+        mPhaseNanos[phase] = nanos;
+    }
+
+    /**
+     * @param bytes Number of bytes of response just read
+     */
+    public void addBytesDownloaded(long bytes) {
+        mBytesDownloaded += bytes;
+    }
+
+    /**
+     * @return Number of bytes of response read during the sync
+     */
+    public long getBytesDownloaded() {
+        return mBytesDownloaded;
+    }
+
+    /**
+     * @param succeeded Whether the sync stored fresh weather
+     */
+    public void setSucceeded(boolean succeeded) {
+        mSucceeded = succeeded;
+    }
+
+    public boolean hasSucceeded() {
+        return mSucceeded;
+    }
+
+    /**
+     * @return Wall clock time at which the sync started, in milliseconds since the epoch. Only
+     * meant for telling syncs apart in reports; durations come from the monotonic clock.
+     */
+    public long getStartTimeMillis() {
+        return mStartTimeMillis;
+    }
+
+    /**
+     * @return Time spent in all phases combined, in nanoseconds
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (long nanos : mPhaseNanos) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    /**
+     * @param phase One of the PHASE_ constants
+     * @return A short, stable name for the phase, suitable for logs and reports
+     */
+    public static String getPhaseName(int phase) {
+        return PHASE_NAMES[phase];
+    }
+}
@@ -4,51 +4,112 @@ import android.content.ContentValues;
 import android.content.Context;
 
 import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.weather.SyntheticWeather;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 
 import static com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
 
+/**
+ * Fills Sunshine's database with made-up weather, for trying the app out without a network and
+ * for tests and benchmarks that need a lot of data. The weather comes from
+ * {@link SyntheticWeather}, so the same seed always gives the same data.
+ */
 public class FakeDataUtils {
 
-    private static int [] weatherIDs = {200,300,500,711,900,962};
+    /* The seed insertFakeData uses, so that the fake week is the same every time */
+    public static final long DEFAULT_SEED = 20160920L;
+
+    /* Days per bulkInsert when streaming a large dataset into the provider */
+    private static final int INSERT_BATCH_SIZE = 500;
 
     /**
-     * Creates a single ContentValues object with random weather data for the provided date
-     * @param date a normalized date
-     * @return ContentValues object filled with random weather data
+     * Creates a single ContentValues object from a day of synthetic weather
+     * @param day a day from SyntheticWeather
+     * @return ContentValues object filled with that day's weather
      */
-    private static ContentValues createTestWeatherContentValues(long date) {
-        ContentValues testWeatherValues = new ContentValues();
-        testWeatherValues.put(WeatherEntry.COLUMN_DATE, date);
-        testWeatherValues.put(WeatherEntry.COLUMN_DEGREES, Math.random()*2);
-        testWeatherValues.put(WeatherEntry.COLUMN_HUMIDITY, Math.random()*100);
-        testWeatherValues.put(WeatherEntry.COLUMN_PRESSURE, 870 + Math.random()*100);
-        int maxTemp = (int)(Math.random()*100);
-        testWeatherValues.put(WeatherEntry.COLUMN_MAX_TEMP, maxTemp);
-        testWeatherValues.put(WeatherEntry.COLUMN_MIN_TEMP, maxTemp - (int) (Math.random()*10));
-        testWeatherValues.put(WeatherEntry.COLUMN_WIND_SPEED, Math.random()*10);
-        testWeatherValues.put(WeatherEntry.COLUMN_WEATHER_ID, weatherIDs[(int)(Math.random()*10)%5]);
-        return testWeatherValues;
+    public static ContentValues createWeatherContentValues(SyntheticWeather.Day day) {
+        ContentValues weatherValues = new ContentValues();
+        weatherValues.put(WeatherEntry.COLUMN_DATE, day.date);
+        weatherValues.put(WeatherEntry.COLUMN_DEGREES, day.degrees);
+        weatherValues.put(WeatherEntry.COLUMN_HUMIDITY, day.humidity);
+        weatherValues.put(WeatherEntry.COLUMN_PRESSURE, day.pressure);
+        weatherValues.put(WeatherEntry.COLUMN_MAX_TEMP, day.maxCelsius);
+        weatherValues.put(WeatherEntry.COLUMN_MIN_TEMP, day.minCelsius);
+        weatherValues.put(WeatherEntry.COLUMN_WIND_SPEED, day.windSpeed);
+        weatherValues.put(WeatherEntry.COLUMN_WEATHER_ID, day.weatherId);
+        return weatherValues;
     }
 
     /**
-     * Creates random weather data for 7 days starting today
+     * Creates fake weather data for 7 days starting today
      * @param context
      */
     public static void insertFakeData(Context context) {
         //Get today's normalized date
         long today = SunshineDateUtils.normalizeDate(System.currentTimeMillis());
-        List<ContentValues> fakeValues = new ArrayList<ContentValues>();
-        //loop over 7 days starting today onwards
-        for(int i=0; i<7; i++) {
-            fakeValues.add(FakeDataUtils.createTestWeatherContentValues(today + TimeUnit.DAYS.toMillis(i)));
+        insertSyntheticData(context, DEFAULT_SEED, SyntheticWeather.Location.MOUNTAIN_VIEW,
+                today, 7);
+    }
+
+    /**
+     * Streams synthetic weather into Sunshine's database through the WeatherProvider, a batch
+     * at a time, so that years of data never have to be held in memory at once. The database
+     * only holds one location, and days already stored are replaced.
+     *
+     * @param context   Used to reach the WeatherProvider
+     * @param seed      Picks the weather
+     * @param location  Where the weather is
+     * @param firstDate The date of the first day, a normalized UTC midnight
+     * @param days      How many days to insert
+     * @return The number of days inserted
+     */
+    public static int insertSyntheticData(Context context, long seed,
+                                          SyntheticWeather.Location location, long firstDate,
+                                          int days) {
+        SyntheticWeather weather = new SyntheticWeather(seed, location, firstDate);
+        ContentValues[] batch = new ContentValues[Math.min(days, INSERT_BATCH_SIZE)];
+        int inserted = 0;
+        int remaining = days;
+        while (remaining > 0) {
+            int count = Math.min(remaining, batch.length);
+            if (count < batch.length) {
+                batch = new ContentValues[count];
+            }
+            for (int i = 0; i < count; i++) {
+                batch[i] = createWeatherContentValues(weather.next());
+            }
+            // Bulk Insert our new weather data into Sunshine's Database
+            inserted += context.getContentResolver().bulkInsert(
+                    WeatherContract.WeatherEntry.CONTENT_URI, batch);
+            remaining -= count;
+        }
+        return inserted;
+    }
+
+    /**
+     * Writes synthetic weather for several locations to a CSV file, see
+     * {@link SyntheticWeather#writeCsv}, so that tools off the device can work on the very same
+     * data as the tests on it.
+     *
+     * @param file      The file to write, replaced if it exists
+     * @param seed      Picks the weather
+     * @param locations The locations to write
+     * @param firstDate The date of the first day, a normalized UTC midnight
+     * @param days      How many days to write for each location
+     * @throws IOException If the file couldn't be written
+     */
+    public static void exportSyntheticData(File file, long seed,
+                                           SyntheticWeather.Location[] locations, long firstDate,
+                                           int days) throws IOException {
+        Writer writer = new FileWriter(file);
+        try {
+            SyntheticWeather.writeCsv(writer, seed, locations, firstDate, days);
+        } finally {
+            writer.close();
         }
-        // Bulk Insert our new weather data into Sunshine's Database
-        context.getContentResolver().bulkInsert(
-                WeatherContract.WeatherEntry.CONTENT_URI,
-                fakeValues.toArray(new ContentValues[7]));
     }
 }
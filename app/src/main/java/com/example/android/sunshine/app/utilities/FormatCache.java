@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.utilities;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.support.v4.util.LruCache;
+
+import com.example.android.sunshine.app.data.SunshinePreferences;
+
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * Remembers the strings {@link SunshineDateUtils} and {@link SunshineWeatherUtils} format for
+ * dates, temperatures and weather conditions. The same few dozen values get formatted over and
+ * over, by the forecast list, the detail screen, notifications and share intents, and each one
+ * costs a String.format, a resource lookup or a time zone query.
+ * <p>
+ * What a formatted string looks like depends on more than the value: temperatures depend on the
+ * units, everything depends on the locale, and friendly dates ("Today", "Tomorrow") depend on
+ * what day it is. Rather than put all of that in every key, each cache only holds strings for one
+ * combination of units, locale and day, and is emptied as soon as any of them changes. Checking
+ * that on each lookup is cheap: the units come from the preferences snapshot, the locale is
+ * compared by identity, and the day only rolls over at a known time. Time zone and clock changes,
+ * which can move that time, are caught with a broadcast receiver.
+ * <p>
+ * All methods are safe to call from any thread.
+ */
+public final class FormatCache {
+
+    /* Sizes are in entries; each is a few times what one screen of forecast needs */
+    private static final int DATE_CACHE_SIZE = 64;
+    private static final int TEMPERATURE_CACHE_SIZE = 256;
+    private static final int CONDITION_CACHE_SIZE = 64;
+
+    /* Keyed by the normalized date, with the sign bit set for "full" dates */
+    private static final LruCache<Long, String> sDates = new LruCache<>(DATE_CACHE_SIZE);
+    /* Keyed by the bits of the temperature in Celsius */
+    private static final LruCache<Long, String> sTemperatures =
+            new LruCache<>(TEMPERATURE_CACHE_SIZE);
+    private static final LruCache<Integer, String> sConditions =
+            new LruCache<>(CONDITION_CACHE_SIZE);
+
+    /* What the cached strings were formatted for */
+    private static boolean sInitialized;
+    private static boolean sMetric;
+    private static Locale sLocale;
+    /* When the current day ends, and "Today" stops meaning today */
+    private static long sDayEndsMillis;
+
+    /* Bumped every time the caches are emptied, so that late puts can be recognized */
+    private static int sGeneration;
+    private static boolean sReceiverRegistered;
+
+    private FormatCache() {
+    }
+
+    /**
+     * Cached {@link SunshineDateUtils#getFriendlyDateString(Context, long, boolean)}.
+     */
+    public static String getFriendlyDateString(Context context, long normalizedUtcMidnight,
+                                               boolean showFullDate) {
+        int generation = validate(context);
+        Long key = showFullDate ? normalizedUtcMidnight | Long.MIN_VALUE : normalizedUtcMidnight;
+        String dateString = sDates.get(key);
+        if (dateString == null) {
+            dateString = SunshineDateUtils.getFriendlyDateString(
+                    context, normalizedUtcMidnight, showFullDate);
+            put(sDates, key, dateString, generation);
+        }
+        return dateString;
+    }
+
+    /**
+     * Cached {@link SunshineWeatherUtils#formatTemperature(Context, double)}.
+     */
+    public static String formatTemperature(Context context, double temperature) {
+        int generation = validate(context);
+        Long key = Double.doubleToLongBits(temperature);
+        String temperatureString = sTemperatures.get(key);
+        if (temperatureString == null) {
+            temperatureString = SunshineWeatherUtils.formatTemperature(context, temperature);
+            put(sTemperatures, key, temperatureString, generation);
+        }
+        return temperatureString;
+    }
+
+    /**
+     * Cached {@link SunshineWeatherUtils#getStringForWeatherCondition(Context, int)}.
+     */
+    public static String getStringForWeatherCondition(Context context, int weatherId) {
+        int generation = validate(context);
+        String condition = sConditions.get(weatherId);
+        if (condition == null) {
+            condition = SunshineWeatherUtils.getStringForWeatherCondition(context, weatherId);
+            if (condition != null) {
+                put(sConditions, weatherId, condition, generation);
+            }
+        }
+        return condition;
+    }
+
+    /**
+     * Empties every cache. Happens by itself when the units, locale or day change; this is for
+     * anything else that changes how strings are formatted.
+     */
+    public static void invalidate() {
+        synchronized (FormatCache.class) {
+            sInitialized = false;
+        }
+    }
+
+    /**
+     * @return How often each cache has been able to answer, for the debug settings
+     */
+    public static String getStats() {
+        return String.format(Locale.US,
+                "dates        %s\ntemperatures %s\nconditions   %s\n\ngeneration %d",
+                hitRate(sDates), hitRate(sTemperatures), hitRate(sConditions), getGeneration());
+    }
+
+    private static String hitRate(LruCache<?, ?> cache) {
+        int hits = cache.hitCount();
+        int lookups = hits + cache.missCount();
+        return String.format(Locale.US, "%5.1f%% of %d lookups, %d/%d entries",
+                lookups == 0 ? 0f : 100f * hits / lookups, lookups,
+                cache.size(), cache.maxSize());
+    }
+
+    private static synchronized int getGeneration() {
+        return sGeneration;
+    }
+
+    /**
+     * Empties the caches if the units, locale or day have changed since they were filled.
+     *
+     * @return The generation of the caches, to pass to {@link #put}
+     */
+    private static synchronized int validate(Context context) {
+        boolean metric = SunshinePreferences.getSnapshot(context).isMetric;
+        Locale locale = Locale.getDefault();
+        long now = System.currentTimeMillis();
+
+        if (sInitialized && metric == sMetric && locale == sLocale && now < sDayEndsMillis) {
+            return sGeneration;
+        }
+
+        if (!sReceiverRegistered) {
+            /* From now on, hear about the clock or time zone changing under us */
+            registerTimeReceiver(context);
+            sReceiverRegistered = true;
+        }
+
+        sGeneration++;
+        sDates.evictAll();
+        sTemperatures.evictAll();
+        sConditions.evictAll();
+
+        sMetric = metric;
+        sLocale = locale;
+        sDayEndsMillis = getNextLocalMidnight(now);
+        sInitialized = true;
+        return sGeneration;
+    }
+
+    /**
+     * Caches a string, unless the caches were emptied while it was being formatted, in which case
+     * it may have been formatted for the old units, locale or day.
+     */
+    private static synchronized <K> void put(LruCache<K, String> cache, K key, String value,
+                                             int generation) {
+        if (generation == sGeneration) {
+            cache.put(key, value);
+        }
+    }
+
+    /**
+     * The first local midnight after now, in the default time zone. Going through the calendar
+     * gets the days daylight saving makes 23 or 25 hours long right.
+     */
+    static long getNextLocalMidnight(long now) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    private static void registerTimeReceiver(Context context) {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        filter.addAction(Intent.ACTION_DATE_CHANGED);
+        context.getApplicationContext().registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                invalidate();
+            }
+        }, filter);
+    }
+}
@@ -17,14 +17,20 @@ package com.example.android.sunshine.app.utilities;
 
 import android.content.Context;
 import android.net.Uri;
+import android.text.TextUtils;
 import android.util.Log;
 
 import com.example.android.sunshine.app.BuildConfig;
 import com.example.android.sunshine.app.data.SunshinePreferences;
+import com.example.android.sunshine.app.network.CountingInputStream;
+import com.example.android.sunshine.app.network.HedgedWeatherTransport;
+import com.example.android.sunshine.app.network.HttpWeatherTransport;
+import com.example.android.sunshine.app.network.WeatherCall;
+import com.example.android.sunshine.app.network.WeatherTransport;
+import com.example.android.sunshine.app.sync.SyncCancellation;
+import com.example.android.sunshine.app.sync.SyncTimings;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Scanner;
@@ -58,6 +64,13 @@ public final class NetworkUtils {
 //    private static final String FORECAST_BASE_URL = STATIC_WEATHER_URL;
     private static final String FORECAST_BASE_URL = DYNAMIC_WEATHER_URL;
 
+    /*
+     * The base URL we actually query. Debug builds can point this at a stand-in server by
+     * building with -PweatherServerUrl=http://..., and tests can change it at runtime with
+     * setForecastBaseUrl.
+     */
+    private static volatile String sForecastBaseUrl = getDefaultForecastBaseUrl();
+
     /*
      * NOTE: These values only effect responses from OpenWeatherMap, NOT from the fake weather
      * server. They are simply here to allow us to teach you how to build a URL if you were to use
@@ -87,6 +100,80 @@ public final class NetworkUtils {
 
     private static final String API_KEY_PARAM = "api_key";
 
+    /*
+     * Everything we fetch goes through this transport. It talks HTTP unless a test or benchmark
+     * swaps in something else, such as a ReplayWeatherTransport.
+     */
+    private static volatile WeatherTransport sWeatherTransport = BuildConfig.HEDGE_WEATHER_REQUESTS
+            ? createHedgedTransport()
+            : new HttpWeatherTransport();
+
+    /**
+     * Replaces the transport used to fetch weather data. Intended for tests and benchmarks that
+     * need to run a sync without the network.
+     *
+     * @param transport The transport to use from now on
+     */
+    public static void setWeatherTransport(WeatherTransport transport) {
+        sWeatherTransport = transport;
+    }
+
+    /**
+     * @return The transport currently used to fetch weather data
+     */
+    public static WeatherTransport getWeatherTransport() {
+        return sWeatherTransport;
+    }
+
+    /**
+     * Turns hedged requests on or off. With hedging on, a request to the dynamic weather server
+     * that hasn't started answering within its usual time is also sent to the static weather
+     * server, and whichever answers first wins. Note that the two servers don't serve the same
+     * weather, so a hedged sync may store the static forecast.
+     * <p>
+     * Hedging can also be turned on for a whole build with -PhedgeWeatherRequests=true.
+     *
+     * @param enabled Whether to hedge from now on
+     */
+    public static void setHedgedRequestsEnabled(boolean enabled) {
+        if (enabled == (sWeatherTransport instanceof HedgedWeatherTransport)) return;
+        sWeatherTransport = enabled ? createHedgedTransport() : new HttpWeatherTransport();
+    }
+
+    /**
+     * @return The hedging statistics since hedging was turned on, or null if it's off
+     */
+    public static HedgedWeatherTransport.Stats getHedgeStats() {
+        WeatherTransport transport = sWeatherTransport;
+        if (transport instanceof HedgedWeatherTransport) {
+            return ((HedgedWeatherTransport) transport).getStats();
+        }
+        return null;
+    }
+
+    private static WeatherTransport createHedgedTransport() {
+        return new HedgedWeatherTransport(
+                new HttpWeatherTransport(), DYNAMIC_WEATHER_URL, STATIC_WEATHER_URL);
+    }
+
+    /**
+     * Points every weather request at a different server, such as a local stand-in used to
+     * test how sync copes with slow or broken responses.
+     *
+     * @param baseUrl The URL to append the query parameters to, or null to go back to the
+     *                default weather server
+     */
+    public static void setForecastBaseUrl(String baseUrl) {
+        sForecastBaseUrl = baseUrl == null ? getDefaultForecastBaseUrl() : baseUrl;
+    }
+
+    private static String getDefaultForecastBaseUrl() {
+        if (TextUtils.isEmpty(BuildConfig.WEATHER_SERVER_URL)) {
+            return FORECAST_BASE_URL;
+        }
+        return BuildConfig.WEATHER_SERVER_URL;
+    }
+
     /**
      * Retrieves the proper URL to query for the weather data. The reason for both this method as
      * well as {@link #buildUrlWithLocationQuery(String)} is two fold.
@@ -122,7 +209,7 @@ public final class NetworkUtils {
      * @return The Url to use to query the weather server.
      */
     private static URL buildUrlWithLatitudeLongitude(Double latitude, Double longitude) {
-        Uri weatherQueryUri = Uri.parse(FORECAST_BASE_URL).buildUpon()
+        Uri weatherQueryUri = Uri.parse(sForecastBaseUrl).buildUpon()
                 .appendQueryParameter(LAT_PARAM, String.valueOf(latitude))
                 .appendQueryParameter(LON_PARAM, String.valueOf(longitude))
                 .appendQueryParameter(FORMAT_PARAM, format)
@@ -149,7 +236,7 @@ public final class NetworkUtils {
      * @return The URL to use to query the weather server.
      */
     private static URL buildUrlWithLocationQuery(String locationQuery) {
-        Uri weatherQueryUri = Uri.parse(FORECAST_BASE_URL).buildUpon()
+        Uri weatherQueryUri = Uri.parse(sForecastBaseUrl).buildUpon()
                 .appendQueryParameter(QUERY_PARAM, locationQuery)
                 .appendQueryParameter(FORMAT_PARAM, format)
                 .appendQueryParameter(UNITS_PARAM, units)
@@ -175,10 +262,27 @@ public final class NetworkUtils {
      * @throws IOException Related to network and stream reading
      */
     public static String getResponseFromHttpUrl(URL url) throws IOException {
-        HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
-        try {
-            InputStream in = urlConnection.getInputStream();
+        return getResponseFromHttpUrl(url, new SyncTimings(), new SyncCancellation());
+    }
 
+    /**
+     * Same as {@link #getResponseFromHttpUrl(URL)}, but records the time spent connecting and
+     * downloading, as well as the size of the response, into the given SyncTimings, and can be
+     * canceled from another thread.
+     *
+     * @param url          The URL to fetch the HTTP response from.
+     * @param timings      Receives the connect and download times and the bytes read
+     * @param cancellation Canceling it closes the connection, failing this request
+     * @return The contents of the HTTP response, null if no response
+     * @throws IOException Related to network and stream reading, or if canceled
+     */
+    public static String getResponseFromHttpUrl(URL url, SyncTimings timings,
+                                                SyncCancellation cancellation)
+            throws IOException {
+        timings.begin(SyncTimings.PHASE_CONNECT);
+        CountingInputStream in = openResponseStream(url, cancellation);
+        timings.begin(SyncTimings.PHASE_DOWNLOAD);
+        try {
             Scanner scanner = new Scanner(in);
             scanner.useDelimiter("\\A");
 
@@ -187,10 +291,48 @@ public final class NetworkUtils {
             if (hasInput) {
                 response = scanner.next();
             }
+
+            /*
+             * Scanner swallows IOExceptions and simply stops, which would hand a truncated body
+             * to the JSON parser. If the connection broke mid-response, report it instead.
+             */
+            IOException readFailure = scanner.ioException();
             scanner.close();
+            if (readFailure != null) {
+                throw readFailure;
+            }
             return response;
         } finally {
-            urlConnection.disconnect();
+            in.close();
+            timings.addBytesDownloaded(in.getCount());
+        }
+    }
+
+    /**
+     * Starts a request and returns its body as a stream, for callers that want to parse the
+     * response as it arrives rather than wait for all of it.
+     *
+     * @param url          The URL to fetch
+     * @param cancellation Canceling it closes the connection, failing any read in progress
+     * @return The body of the response, which the caller must close. It counts the bytes read.
+     * @throws IOException If the request failed or was canceled
+     */
+    public static CountingInputStream openResponseStream(URL url,
+                                                         final SyncCancellation cancellation)
+            throws IOException {
+        WeatherCall call = sWeatherTransport.newCall(url);
+        cancellation.setCall(call);
+        try {
+            return new CountingInputStream(call.execute()) {
+                @Override
+                public void close() throws IOException {
+                    cancellation.setCall(null);
+                    super.close();
+                }
+            };
+        } catch (IOException e) {
+            cancellation.setCall(null);
+            throw e;
         }
     }
-}
\ No newline at end of file
+}
@@ -162,7 +162,7 @@ public class NotificationUtils {
          * Short description of the weather, as provided by the API.
          * e.g "clear" vs "sky is clear".
          */
-        String shortDescription = SunshineWeatherUtils
+        String shortDescription = FormatCache
                 .getStringForWeatherCondition(context, weatherId);
 
         String notificationFormat = context.getString(R.string.format_notification);
@@ -170,8 +170,8 @@ public class NotificationUtils {
         /* Using String's format method, we create the forecast summary */
         String notificationText = String.format(notificationFormat,
                 shortDescription,
-                SunshineWeatherUtils.formatTemperature(context, high),
-                SunshineWeatherUtils.formatTemperature(context, low));
+                FormatCache.formatTemperature(context, high),
+                FormatCache.formatTemperature(context, low));
 
         return notificationText;
     }
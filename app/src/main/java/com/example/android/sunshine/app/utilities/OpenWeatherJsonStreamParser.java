@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.utilities;
+
+import android.annotation.TargetApi;
+import android.content.ContentValues;
+import android.os.Build;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+
+/**
+ * Parses the same OpenWeatherMap JSON as {@link OpenWeatherJsonUtils}, but straight off the
+ * network stream, handing each day to a callback as soon as it has been read. Nothing but the
+ * day being parsed is kept in memory, however long the forecast is.
+ * <p>
+ * Uses {@link JsonReader}, so only works on Honeycomb and up; check {@link #isSupported()}.
+ */
+@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+public final class OpenWeatherJsonStreamParser {
+
+    private static final String OWM_CITY = "city";
+    private static final String OWM_COORD = "coord";
+    private static final String OWM_LATITUDE = "lat";
+    private static final String OWM_LONGITUDE = "lon";
+    private static final String OWM_LIST = "list";
+    private static final String OWM_PRESSURE = "pressure";
+    private static final String OWM_HUMIDITY = "humidity";
+    private static final String OWM_WINDSPEED = "speed";
+    private static final String OWM_WIND_DIRECTION = "deg";
+    private static final String OWM_TEMPERATURE = "temp";
+    private static final String OWM_MAX = "max";
+    private static final String OWM_MIN = "min";
+    private static final String OWM_WEATHER = "weather";
+    private static final String OWM_WEATHER_ID = "id";
+    private static final String OWM_MESSAGE_CODE = "cod";
+
+    /**
+     * Receives each day of the forecast, in order, as it is parsed.
+     */
+    public interface Callback {
+        /**
+         * @param weatherValues One day of weather, ready to insert. May be blocked on to slow
+         *                      the parser down to the speed of whoever consumes the days.
+         */
+        void onDay(ContentValues weatherValues) throws IOException;
+    }
+
+    /**
+     * What the parser learned beyond the days themselves. Since the fields of the response can
+     * come in any order, this is only known once the whole response has been read.
+     */
+    public static final class Result {
+
+        /* The "cod" of the response, or HTTP_OK if it had none */
+        public final int code;
+        public final boolean hasLocation;
+        public final double latitude;
+        public final double longitude;
+        public final int days;
+
+        Result(int code, boolean hasLocation, double latitude, double longitude, int days) {
+            this.code = code;
+            this.hasLocation = hasLocation;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.days = days;
+        }
+
+        /**
+         * @return Whether the days handed to the callback are a usable forecast. If not, they
+         * should be thrown away, just like {@link OpenWeatherJsonUtils} returns null.
+         */
+        public boolean isValid() {
+            return code == HttpURLConnection.HTTP_OK && hasLocation && days > 0;
+        }
+    }
+
+    private OpenWeatherJsonStreamParser() {
+    }
+
+    /**
+     * @return Whether this device can use the streaming parser
+     */
+    public static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB;
+    }
+
+    /**
+     * Parses a forecast. The stream is not closed.
+     *
+     * @param in       The response body, in UTF-8
+     * @param callback Receives each day as soon as it's parsed
+     * @return The rest of what the response said
+     * @throws IOException If the stream broke or the JSON was malformed
+     */
+    public static Result parse(InputStream in, Callback callback) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, "UTF-8"));
+
+        int code = HttpURLConnection.HTTP_OK;
+        boolean hasLocation = false;
+        double latitude = 0;
+        double longitude = 0;
+        int days = 0;
+
+        /* Like OpenWeatherJsonUtils, we ignore the dates in the JSON and count days from today */
+        long normalizedUtcStartDay = SunshineDateUtils.getNormalizedUtcDateForToday();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_MESSAGE_CODE.equals(name)) {
+                /* Sent as a number by some servers and as a string by others; nextInt takes both */
+                code = reader.nextInt();
+            } else if (OWM_CITY.equals(name)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (OWM_COORD.equals(reader.nextName())) {
+                        double[] coord = readCoord(reader);
+                        latitude = coord[0];
+                        longitude = coord[1];
+                        hasLocation = true;
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else if (OWM_LIST.equals(name) && code == HttpURLConnection.HTTP_OK) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    long dateTimeMillis =
+                            normalizedUtcStartDay + SunshineDateUtils.DAY_IN_MILLIS * days;
+                    callback.onDay(readDay(reader, dateTimeMillis));
+                    days++;
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new Result(code, hasLocation, latitude, longitude, days);
+    }
+
+    private static double[] readCoord(JsonReader reader) throws IOException {
+        double[] coord = new double[2];
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_LATITUDE.equals(name)) {
+                coord[0] = reader.nextDouble();
+            } else if (OWM_LONGITUDE.equals(name)) {
+                coord[1] = reader.nextDouble();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return coord;
+    }
+
+    /**
+     * Reads one element of the "list" array into the same ContentValues OpenWeatherJsonUtils
+     * builds. Every field it needs must be present.
+     */
+    private static ContentValues readDay(JsonReader reader, long dateTimeMillis)
+            throws IOException {
+        ContentValues weatherValues = new ContentValues();
+        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE, dateTimeMillis);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_PRESSURE.equals(name)) {
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+                        reader.nextDouble());
+            } else if (OWM_HUMIDITY.equals(name)) {
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
+                        reader.nextInt());
+            } else if (OWM_WINDSPEED.equals(name)) {
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+                        reader.nextDouble());
+            } else if (OWM_WIND_DIRECTION.equals(name)) {
+                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES,
+                        reader.nextDouble());
+            } else if (OWM_TEMPERATURE.equals(name)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String temperature = reader.nextName();
+                    if (OWM_MAX.equals(temperature)) {
+                        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+                                reader.nextDouble());
+                    } else if (OWM_MIN.equals(temperature)) {
+                        weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+                                reader.nextDouble());
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else if (OWM_WEATHER.equals(name)) {
+                /* An array whose first element holds the weather code */
+                reader.beginArray();
+                boolean first = true;
+                while (reader.hasNext()) {
+                    if (first && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            if (OWM_WEATHER_ID.equals(reader.nextName())) {
+                                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+                                        reader.nextInt());
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                    } else {
+                        reader.skipValue();
+                    }
+                    first = false;
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (weatherValues.size() != 8) {
+            throw new IOException("Forecast day is missing fields: " + weatherValues.keySet());
+        }
+        return weatherValues;
+    }
+}
@@ -2,23 +2,42 @@ package com.example.android.sunshine.app.watchface_sync;
 
 import android.content.Context;
 import android.database.Cursor;
-import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Process;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.util.Base64;
+import android.util.Log;
 
+import com.example.android.sunshine.app.data.SunshinePreferences;
 import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.weather.WatchForecast;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.api.ResultCallbacks;
-import com.google.android.gms.common.api.Status;
 import com.google.android.gms.wearable.DataApi;
 import com.google.android.gms.wearable.PutDataMapRequest;
 import com.google.android.gms.wearable.PutDataRequest;
 import com.google.android.gms.wearable.Wearable;
 
-
-public class WatchfaceSyncService implements
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Publishes the stored forecast to the watch. Everything it does, reading the forecast, talking
+ * to Google Play services and keeping track of what was sent, happens on its own background
+ * thread, so {@link #updateWatchface()} can be called from anywhere, the main thread included,
+ * and returns at once.
+ * <p>
+ * Updates asked for while one is already waiting are folded into it, as they would all send the
+ * same forecast. An update asked for before GoogleApiClient has connected waits for it, and a
+ * connection that fails is tried again after a delay that doubles each time. Only the
+ * application Context is kept, so nothing outlives the Activity or Service that asked.
+ */
+public class WatchfaceSyncService implements Handler.Callback,
         GoogleApiClient.ConnectionCallbacks, GoogleApiClient.OnConnectionFailedListener {
 
     private static final String LOG_TAG = WatchfaceSyncService.class.getSimpleName();
@@ -26,94 +45,292 @@ public class WatchfaceSyncService implements
     private static final String WEATHER_PATH = "/update-weather";
 
     private static final String[] WEATHER_PROJECTION = new String[]{
+            WeatherContract.WeatherEntry.COLUMN_DATE,
             WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
             WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
             WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
     };
 
     // these indices must match the projection
-    private static final int INDEX_WEATHER_ID = 0;
-    private static final int INDEX_MAX_TEMP = 1;
-    private static final int INDEX_MIN_TEMP = 2;
-
-    static WatchfaceSyncService watchfaceSyncService;
-    static GoogleApiClient mGoogleApiClient;
-    static Context mContext;
-
+    private static final int INDEX_DATE = 0;
+    private static final int INDEX_WEATHER_ID = 1;
+    private static final int INDEX_MAX_TEMP = 2;
+    private static final int INDEX_MIN_TEMP = 3;
+
+    /* The days sent to the watch, from today on */
+    private static final int FORECAST_DAYS = 14;
+
+    /*
+     * The payload last sent, kept apart from the user's settings so that it outlives the
+     * process: an update that would send the same bytes is skipped, and a changed one is
+     * compared with it to tell how much it differs. Only written when something is sent.
+     */
+    private static final String PREFS_NAME = "watchface_sync";
+    private static final String PREF_SENT_PAYLOAD = "sent_payload";
+
+    /* Messages handled on the publisher's thread */
+    private static final int MSG_UPDATE = 1;
+    private static final int MSG_CONNECT = 2;
+
+    /* How long to wait before connecting again after a failure, doubled each time up to the max */
+    private static final long INITIAL_BACKOFF_MS = TimeUnit.SECONDS.toMillis(5);
+    private static final long MAX_BACKOFF_MS = TimeUnit.MINUTES.toMillis(30);
+
+    /* How long to wait for the Data Layer to take a forecast */
+    private static final long SEND_TIMEOUT_SECONDS = 30;
+
+    private static WatchfaceSyncService sInstance;
+
+    private final Context mContext;
+    private final Handler mHandler;
+    private final GoogleApiClient mGoogleApiClient;
+
+    /* Only touched on the publisher's thread */
+    private boolean mUpdatePending;
+    private long mBackoffMs = INITIAL_BACKOFF_MS;
+    /* The payload last sent, read from the preferences the first time it's needed */
+    private byte[] mSentPayload;
+    private boolean mSentPayloadRead;
+
+    /*
+     * What became of the updates since the process started. Only written on the publisher's
+     * thread, so a skipped update costs no disk write.
+     */
+    private volatile int mSentUrgent;
+    private volatile int mSentLater;
+    private volatile int mSkipped;
 
     private WatchfaceSyncService(Context context) {
+        mContext = context.getApplicationContext();
 
-        mContext = context;
+        HandlerThread thread = new HandlerThread("WatchfaceSync",
+                Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        mHandler = new Handler(thread.getLooper(), this);
 
-        mGoogleApiClient = new GoogleApiClient.Builder(context)
+        /* Connection callbacks come on the publisher's thread too */
+        mGoogleApiClient = new GoogleApiClient.Builder(mContext)
                 .addApi(Wearable.API)
                 .addConnectionCallbacks(this)
                 .addOnConnectionFailedListener(this)
+                .setHandler(mHandler)
                 .build();
 
-        mGoogleApiClient.connect();
+        mHandler.sendEmptyMessage(MSG_CONNECT);
     }
 
-    public static WatchfaceSyncService getInstance(Context context) {
-        if (watchfaceSyncService == null) {
-            watchfaceSyncService = new WatchfaceSyncService(context);
+    /**
+     * @param context Any Context; only its application Context is kept
+     * @return The one publisher, connecting to the watch the first time it's asked for
+     */
+    public static synchronized WatchfaceSyncService getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WatchfaceSyncService(context);
         }
-        return watchfaceSyncService;
+        return sInstance;
     }
 
+    /**
+     * Queues sending the stored forecast to the watch, unless an update is queued already. Safe
+     * to call from any thread; returns at once.
+     */
     public void updateWatchface() {
+        if (!mHandler.hasMessages(MSG_UPDATE)) {
+            mHandler.sendEmptyMessage(MSG_UPDATE);
+        }
+    }
 
-        Uri weatherUri = WeatherContract.WeatherEntry.CONTENT_URI;
+    @Override
+    public boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_UPDATE:
+                if (mGoogleApiClient.isConnected()) {
+                    mUpdatePending = false;
+                    publish();
+                } else {
+                    /* Sent from onConnected */
+                    mUpdatePending = true;
+                    connect();
+                }
+                return true;
+            case MSG_CONNECT:
+                connect();
+                return true;
+            default:
+                return false;
+        }
+    }
 
-        Cursor cursor = mContext.getContentResolver()
-                .query(weatherUri, WEATHER_PROJECTION, null, null, null);
+    private void connect() {
+        mHandler.removeMessages(MSG_CONNECT);
+        if (!mGoogleApiClient.isConnected() && !mGoogleApiClient.isConnecting()) {
+            mGoogleApiClient.connect();
+        }
+    }
 
-        if (cursor.moveToFirst()) {
+    /**
+     * Sends the stored forecast to the watch, unless it is exactly what was last sent. A forecast
+     * that changes what the watch face shows today is sent urgently; one that only changes later
+     * days is left to the Data Layer to deliver whenever suits the battery, which can be a while.
+     * Runs on the publisher's thread, connected.
+     */
+    private void publish() {
+        WatchForecast forecast = readForecast();
+        if (forecast == null || forecast.size() == 0) {
+            return;
+        }
 
-            int weatherId = cursor.getInt(INDEX_WEATHER_ID);
+        byte[] payload = forecast.toBytes();
+        byte[] sentPayload = getSentPayload();
+        if (Arrays.equals(payload, sentPayload)) {
+            mSkipped++;
+            logSendCounts();
+            return;
+        }
+        int change = WatchForecast.getChange(decode(sentPayload), forecast);
+        if (change == WatchForecast.CHANGE_NONE) {
+            /* The same days, only encoded by another version */
+            mSkipped++;
+            logSendCounts();
+            return;
+        }
 
-            double max = cursor.getDouble(INDEX_MAX_TEMP);
-            int maxTemp = (int) Math.round(max);
+        /*
+         * The whole forecast goes in one small byte array, so that the watch has every day to
+         * hand and can read it without parsing any text. Nothing else goes in: the same forecast
+         * makes the same DataItem, which the Data Layer doesn't send again.
+         */
+        PutDataMapRequest mapRequest = PutDataMapRequest.create(WEATHER_PATH);
+        mapRequest.getDataMap().putByteArray(WatchForecast.DATA_KEY, payload);
+        if (change == WatchForecast.CHANGE_TODAY) {
+            mapRequest.setUrgent();
+        }
 
-            double min = cursor.getDouble(INDEX_MIN_TEMP);
-            int minTemp = (int) Math.round(min);
+        PutDataRequest request = mapRequest.asPutDataRequest();
 
-            PutDataMapRequest mapRequest = PutDataMapRequest.create(WEATHER_PATH).setUrgent();
-            mapRequest.getDataMap().putString("max_temp", maxTemp + "°");
-            mapRequest.getDataMap().putString("min_temp", minTemp + "°");
-            mapRequest.getDataMap().putLong("weather_id", weatherId);
-            mapRequest.getDataMap().putLong("timestamp", System.currentTimeMillis());
+        DataApi.DataItemResult result = Wearable.DataApi.putDataItem(mGoogleApiClient, request)
+                .await(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (!result.getStatus().isSuccess()) {
+            /* Tried again by the next update, or by onConnected if the connection went */
+            Log.w(LOG_TAG, "Couldn't send the forecast: " + result.getStatus());
+            mUpdatePending = !mGoogleApiClient.isConnected();
+            return;
+        }
+        mSentPayload = payload;
+        mContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putString(PREF_SENT_PAYLOAD, Base64.encodeToString(payload, Base64.NO_WRAP))
+                .apply();
+        if (change == WatchForecast.CHANGE_TODAY) {
+            mSentUrgent++;
+        } else {
+            mSentLater++;
+        }
+        logSendCounts();
+    }
 
-            PutDataRequest request = mapRequest.asPutDataRequest();
+    /**
+     * @return What became of the updates since the process started: how many were sent
+     * urgently, how many were sent to be delivered whenever, and how many were skipped as
+     * unchanged
+     */
+    public String getSendCounts() {
+        return "urgent=" + mSentUrgent + " later=" + mSentLater + " skipped=" + mSkipped;
+    }
 
-            Wearable.DataApi.putDataItem(mGoogleApiClient, request)
-                    .setResultCallback(new ResultCallbacks<DataApi.DataItemResult>() {
-                @Override
-                public void onSuccess(DataApi.DataItemResult dataItemResult) {
+    private void logSendCounts() {
+        if (Log.isLoggable(LOG_TAG, Log.DEBUG)) {
+            Log.d(LOG_TAG, getSendCounts());
+        }
+    }
 
-                }
+    /**
+     * @return The payload last sent, or null if none was or it can no longer be read
+     */
+    private byte[] getSentPayload() {
+        if (!mSentPayloadRead) {
+            mSentPayloadRead = true;
+            String payload = mContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                    .getString(PREF_SENT_PAYLOAD, null);
+            try {
+                mSentPayload = payload == null ? null : Base64.decode(payload, Base64.NO_WRAP);
+            } catch (IllegalArgumentException e) {
+                mSentPayload = null;
+            }
+        }
+        return mSentPayload;
+    }
 
-                @Override
-                public void onFailure(Status status) {
+    /**
+     * @return The forecast in a payload, or null if there's none or it can no longer be read
+     */
+    private static WatchForecast decode(byte[] payload) {
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return WatchForecast.fromBytes(payload);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 
-                }
-            });
+    /**
+     * @return Up to {@link #FORECAST_DAYS} days of stored weather, from today on, or null if the
+     * weather couldn't be read
+     */
+    private WatchForecast readForecast() {
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherContract.WeatherEntry.CONTENT_URI,
+                WEATHER_PROJECTION,
+                WeatherContract.WeatherEntry.getSqlSelectForTodayOnwards(),
+                null,
+                WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        if (cursor == null) {
+            return null;
         }
 
+        try {
+            int days = Math.min(cursor.getCount(), FORECAST_DAYS);
+            long[] dates = new long[days];
+            int[] weatherIds = new int[days];
+            double[] maxTemps = new double[days];
+            double[] minTemps = new double[days];
+            for (int day = 0; day < days && cursor.moveToNext(); day++) {
+                dates[day] = cursor.getLong(INDEX_DATE);
+                weatherIds[day] = cursor.getInt(INDEX_WEATHER_ID);
+                maxTemps[day] = cursor.getDouble(INDEX_MAX_TEMP);
+                minTemps[day] = cursor.getDouble(INDEX_MIN_TEMP);
+            }
+            return new WatchForecast(SunshinePreferences.isMetric(mContext), dates, weatherIds,
+                    maxTemps, minTemps);
+        } finally {
+            cursor.close();
+        }
     }
 
     @Override
     public void onConnected(@Nullable Bundle bundle) {
-
+        mBackoffMs = INITIAL_BACKOFF_MS;
+        if (mUpdatePending) {
+            mUpdatePending = false;
+            publish();
+        }
     }
 
     @Override
-    public void onConnectionSuspended(int i) {
-
+    public void onConnectionSuspended(int cause) {
+        /* GoogleApiClient reconnects by itself; any update asked for meanwhile waits for it */
     }
 
     @Override
     public void onConnectionFailed(@NonNull ConnectionResult connectionResult) {
-
+        if (connectionResult.getErrorCode() == ConnectionResult.API_UNAVAILABLE) {
+            /* No Wear app on this phone; the next update tries again, there's no point before */
+            return;
+        }
+        Log.w(LOG_TAG, "Couldn't connect, trying again in " + mBackoffMs + " ms: "
+                + connectionResult);
+        mHandler.sendEmptyMessageDelayed(MSG_CONNECT, mBackoffMs);
+        mBackoffMs = Math.min(mBackoffMs * 2, MAX_BACKOFF_MS);
     }
 }
@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.android.sunshine.app.BuildConfig;
+import com.example.android.sunshine.app.MainActivity;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.app.utilities.FakeDataUtils;
+import com.example.android.sunshine.app.utilities.SunshineDateUtils;
+import com.example.android.sunshine.weather.SyntheticWeather;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Measures the WeatherProvider with far more weather than a forecast ever holds, on the JVM
+ * through Robolectric, whose SQLite is the real thing. For each table size it times:
+ * <p>
+ *   1) bulkInsert, in batches of {@link #BATCH_SIZE} days, as throughput and per batch
+ * <p>
+ *   2) The forecast list query MainActivity makes, for the last two weeks of the table
+ * <p>
+ *   3) The single date query DetailActivity makes, for dates picked at random
+ * <p>
+ *   4) Deleting one day at a time, oldest first, and then deleting everything
+ * <p>
+ * Each size is run four times: with the table as WeatherDbHelper creates it and with the same
+ * table without the unique date constraint, which is the only index it has, and each of those
+ * with SQLite's page cache at its default size and at its smallest. The operating system still
+ * caches the database file either way; only SQLite's own cache is taken away.
+ * <p>
+ * The benchmark only runs when asked for, as the largest tables take minutes:
+ * <p>
+ *   ./gradlew :app:testDebugUnitTest -PproviderBenchmark
+ * <p>
+ * -PproviderBenchmarkSizes=14,10000 picks the table sizes. Results are written as JSON, one
+ * object per size, configuration and operation with p50, p95 and p99 in milliseconds, to
+ * app/build/reports/provider-benchmark.json, and summarized on standard out.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TestWeatherProviderBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {14, 10000, 100000, 1000000};
+
+    private static final int BATCH_SIZE = 500;
+    private static final int QUERY_SAMPLES = 200;
+    private static final int DELETE_SAMPLES = 100;
+    private static final int FORECAST_DAYS = 14;
+
+    /* 2017-01-01, so that a million days still fit comfortably in a long of milliseconds */
+    private static final long FIRST_DATE = 17167L * SunshineDateUtils.DAY_IN_MILLIS;
+
+    /* The weather table exactly as WeatherDbHelper creates it, less the unique date constraint */
+    private static final String SQL_CREATE_UNINDEXED_WEATHER_TABLE =
+            "CREATE TABLE " + WeatherEntry.TABLE_NAME + " (" +
+                    WeatherEntry._ID               + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    WeatherEntry.COLUMN_DATE       + " INTEGER NOT NULL, " +
+                    WeatherEntry.COLUMN_WEATHER_ID + " INTEGER NOT NULL," +
+                    WeatherEntry.COLUMN_MIN_TEMP   + " REAL NOT NULL, " +
+                    WeatherEntry.COLUMN_MAX_TEMP   + " REAL NOT NULL, " +
+                    WeatherEntry.COLUMN_HUMIDITY   + " REAL NOT NULL, " +
+                    WeatherEntry.COLUMN_PRESSURE   + " REAL NOT NULL, " +
+                    WeatherEntry.COLUMN_WIND_SPEED + " REAL NOT NULL, " +
+                    WeatherEntry.COLUMN_DEGREES    + " REAL NOT NULL);";
+
+    private ContentResolver mResolver;
+    private WeatherDbHelper mHelper;
+    private SQLiteDatabase mDatabase;
+    private long mDefaultCacheSize;
+
+    @Before
+    public void setUp() {
+        Robolectric.setupContentProvider(WeatherProvider.class, WeatherContract.CONTENT_AUTHORITY);
+        mResolver = RuntimeEnvironment.application.getContentResolver();
+        /* The same helper, and so the same connection, that the provider uses */
+        mHelper = WeatherDbHelper.getInstance(RuntimeEnvironment.application);
+        mDatabase = mHelper.getWritableDatabase();
+        mDefaultCacheSize = queryLong("PRAGMA cache_size");
+    }
+
+    @Test
+    public void benchmarkProvider() throws IOException, JSONException {
+        int[] sizes = parseSizes(System.getProperty("providerBenchmark.sizes"));
+        JSONArray results = new JSONArray();
+
+        for (int size : sizes) {
+            for (boolean indexed : new boolean[]{true, false}) {
+                for (boolean pageCache : new boolean[]{true, false}) {
+                    benchmark(size, indexed, pageCache, results);
+                }
+            }
+        }
+
+        File report = new File(System.getProperty("providerBenchmark.output",
+                "build/reports/provider-benchmark.json"));
+        File parent = report.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Can't create " + parent);
+        }
+        Writer writer = new FileWriter(report);
+        try {
+            writer.write(results.toString(2));
+        } finally {
+            writer.close();
+        }
+        System.out.println("Provider benchmark results written to " + report.getAbsolutePath());
+    }
+
+    private void benchmark(int size, boolean indexed, boolean pageCache, JSONArray results)
+            throws JSONException {
+        /* Start from an empty table of the right shape, every time */
+        if (indexed) {
+            mHelper.onUpgrade(mDatabase, 0, 0);
+        } else {
+            mDatabase.execSQL("DROP TABLE IF EXISTS " + WeatherEntry.TABLE_NAME);
+            mDatabase.execSQL(SQL_CREATE_UNINDEXED_WEATHER_TABLE);
+        }
+        mDatabase.execSQL("PRAGMA cache_size = " + (pageCache ? mDefaultCacheSize : 0));
+
+        String configuration = String.format(Locale.US, "%d rows, %s, %s", size,
+                indexed ? "indexed" : "unindexed", pageCache ? "page cache" : "no page cache");
+        Random random = new Random(size);
+
+        /* bulkInsert: only the inserts are timed, not making up the weather */
+        Samples inserts = new Samples();
+        SyntheticWeather weather = new SyntheticWeather(FakeDataUtils.DEFAULT_SEED,
+                SyntheticWeather.Location.LONDON, FIRST_DATE);
+        int inserted = 0;
+        for (int remaining = size; remaining > 0; ) {
+            ContentValues[] batch = new ContentValues[Math.min(remaining, BATCH_SIZE)];
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = FakeDataUtils.createWeatherContentValues(weather.next());
+            }
+            long start = System.nanoTime();
+            inserted += mResolver.bulkInsert(WeatherEntry.CONTENT_URI, batch);
+            inserts.add(System.nanoTime() - start);
+            remaining -= batch.length;
+        }
+        assertEquals(configuration, size, inserted);
+        report(results, configuration, size, indexed, pageCache, "bulkInsert", inserts, size);
+
+        /* The forecast list, as if today were two weeks before the last day in the table */
+        long today = FIRST_DATE
+                + Math.max(0, size - FORECAST_DAYS) * SunshineDateUtils.DAY_IN_MILLIS;
+        Samples listQueries = new Samples();
+        for (int i = 0; i < QUERY_SAMPLES; i++) {
+            long start = System.nanoTime();
+            Cursor cursor = mResolver.query(WeatherEntry.CONTENT_URI,
+                    MainActivity.MAIN_FORECAST_PROJECTION,
+                    WeatherEntry.COLUMN_DATE + " >= " + today,
+                    null,
+                    WeatherEntry.COLUMN_DATE + " ASC");
+            int rows = drain(cursor);
+            listQueries.add(System.nanoTime() - start);
+            assertEquals(configuration, Math.min(size, FORECAST_DAYS), rows);
+        }
+        report(results, configuration, size, indexed, pageCache, "listQuery", listQueries, 0);
+
+        /* The details of one day */
+        Samples dateQueries = new Samples();
+        for (int i = 0; i < QUERY_SAMPLES; i++) {
+            long date = FIRST_DATE + random.nextInt(size) * SunshineDateUtils.DAY_IN_MILLIS;
+            long start = System.nanoTime();
+            Cursor cursor = mResolver.query(WeatherEntry.buildWeatherUriWithDate(date),
+                    null, null, null, null);
+            int rows = drain(cursor);
+            dateQueries.add(System.nanoTime() - start);
+            assertEquals(configuration, 1, rows);
+        }
+        report(results, configuration, size, indexed, pageCache, "dateQuery", dateQueries, 0);
+
+        /* Dropping past days one at a time, oldest first, then clearing the table */
+        Samples dayDeletes = new Samples();
+        int days = Math.min(size, DELETE_SAMPLES);
+        for (int day = 0; day < days; day++) {
+            String[] date = {Long.toString(FIRST_DATE + day * SunshineDateUtils.DAY_IN_MILLIS)};
+            long start = System.nanoTime();
+            int deleted = mResolver.delete(WeatherEntry.CONTENT_URI,
+                    WeatherEntry.COLUMN_DATE + " = ?", date);
+            dayDeletes.add(System.nanoTime() - start);
+            assertEquals(configuration, 1, deleted);
+        }
+        report(results, configuration, size, indexed, pageCache, "dayDelete", dayDeletes, days);
+
+        Samples deleteAll = new Samples();
+        long start = System.nanoTime();
+        int deleted = mResolver.delete(WeatherEntry.CONTENT_URI, null, null);
+        deleteAll.add(System.nanoTime() - start);
+        assertEquals(configuration, size - days, deleted);
+        report(results, configuration, size, indexed, pageCache, "deleteAll", deleteAll, deleted);
+    }
+
+    /**
+     * Adds one result to the JSON results and prints it.
+     *
+     * @param rows The rows the operation handled in all, to report a throughput; 0 for none
+     */
+    private static void report(JSONArray results, String configuration, int size,
+                               boolean indexed, boolean pageCache, String operation,
+                               Samples samples, int rows) throws JSONException {
+        JSONObject result = new JSONObject()
+                .put("rows", size)
+                .put("indexed", indexed)
+                .put("pageCache", pageCache)
+                .put("operation", operation)
+                .put("samples", samples.count())
+                .put("meanMs", millis(samples.mean()))
+                .put("p50Ms", millis(samples.percentile(50)))
+                .put("p95Ms", millis(samples.percentile(95)))
+                .put("p99Ms", millis(samples.percentile(99)))
+                .put("maxMs", millis(samples.percentile(100)));
+        if (rows > 0 && samples.sum() > 0) {
+            result.put("rowsPerSecond", rows * 1e9 / samples.sum());
+        }
+        results.put(result);
+
+        System.out.println(String.format(Locale.US,
+                "%s, %s: n=%d p50=%.3fms p95=%.3fms p99=%.3fms%s",
+                configuration, operation, samples.count(),
+                millis(samples.percentile(50)),
+                millis(samples.percentile(95)),
+                millis(samples.percentile(99)),
+                result.has("rowsPerSecond")
+                        ? String.format(Locale.US, " %.0f rows/s", result.getDouble("rowsPerSecond"))
+                        : ""));
+    }
+
+    /* Reads every row, as the app does, so that the query is really run and not just prepared */
+    private static int drain(Cursor cursor) {
+        try {
+            int rows = 0;
+            while (cursor.moveToNext()) {
+                cursor.getLong(0);
+                rows++;
+            }
+            return rows;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private long queryLong(String sql) {
+        Cursor cursor = mDatabase.rawQuery(sql, null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static int[] parseSizes(String sizes) {
+        if (sizes == null || sizes.trim().isEmpty()) {
+            return DEFAULT_SIZES;
+        }
+        String[] parts = sizes.split(",");
+        int[] parsed = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            parsed[i] = Integer.parseInt(parts[i].trim());
+        }
+        return parsed;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * Latency samples in nanoseconds, with nearest rank percentiles.
+     */
+    private static class Samples {
+
+        private long[] mSamples = new long[16];
+        private int mCount;
+
+        void add(long nanos) {
+            if (mCount == mSamples.length) {
+                mSamples = Arrays.copyOf(mSamples, mCount * 2);
+            }
+            mSamples[mCount++] = nanos;
+        }
+
+        int count() {
+            return mCount;
+        }
+
+        long sum() {
+            long sum = 0;
+            for (int i = 0; i < mCount; i++) {
+                sum += mSamples[i];
+            }
+            return sum;
+        }
+
+        long mean() {
+            return mCount == 0 ? 0 : sum() / mCount;
+        }
+
+        long percentile(double percentile) {
+            if (mCount == 0) return 0;
+            long[] sorted = Arrays.copyOf(mSamples, mCount);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100.0 * mCount);
+            return sorted[Math.max(0, Math.min(mCount - 1, rank - 1))];
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmarks;
+
+import android.content.ContentValues;
+import android.content.Context;
+
+import com.example.android.sunshine.app.utilities.OpenWeatherJsonUtils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a forecast response with OpenWeatherJsonUtils, as the sequential sync does. "14" is
+ * the recorded Mountain View forecast the sync benchmarks replay; the larger sizes repeat its
+ * days, for a sense of how parsing scales with the response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OpenWeatherJsonBenchmark {
+
+    private static final String RECORDING = "/recordings/mountain_view_14_day.json";
+
+    @Param({"14", "365", "4096"})
+    public int days;
+
+    private final Context mContext = new Context();
+    private String mJson;
+
+    @Setup
+    public void setUp() throws IOException, JSONException {
+        String recorded = readRecording();
+        if (days == 14) {
+            mJson = recorded;
+            return;
+        }
+
+        JSONObject forecast = new JSONObject(recorded);
+        JSONArray recordedDays = forecast.getJSONArray("list");
+        JSONArray allDays = new JSONArray();
+        for (int i = 0; i < days; i++) {
+            allDays.put(recordedDays.get(i % recordedDays.length()));
+        }
+        forecast.put("list", allDays);
+        forecast.put("cnt", days);
+        mJson = forecast.toString();
+    }
+
+    @Benchmark
+    public ContentValues[] parse() throws JSONException {
+        return OpenWeatherJsonUtils.getWeatherContentValuesFromJson(mContext, mJson);
+    }
+
+    private static String readRecording() throws IOException {
+        InputStream in = OpenWeatherJsonBenchmark.class.getResourceAsStream(RECORDING);
+        if (in == null) {
+            throw new IOException("Missing " + RECORDING);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmarks;
+
+import android.content.Context;
+
+import com.example.android.sunshine.app.data.SunshinePreferences;
+import com.example.android.sunshine.app.utilities.SunshineWeatherUtils;
+import com.example.android.sunshine.weather.WeatherConditions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting the wind, and turning weather condition ids into art and descriptions, as binding a
+ * forecast does for each day.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WeatherUtilsBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({"true", "false"})
+    public boolean metric;
+
+    private final Context mContext = new Context();
+
+    /* Inputs drawn once, from a fixed seed, so every run measures the same work */
+    private final float[] mSpeeds = new float[SAMPLES];
+    private final float[] mDegrees = new float[SAMPLES];
+    private final int[] mWeatherIds = new int[SAMPLES];
+    private int mNext;
+
+    @Setup
+    public void setUp() {
+        SunshinePreferences.setMetric(metric);
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            mSpeeds[i] = random.nextFloat() * 40f;
+            mDegrees[i] = random.nextFloat() * 360f;
+            mWeatherIds[i] = WeatherConditions.FIRST_ID
+                    + random.nextInt(WeatherConditions.LAST_ID - WeatherConditions.FIRST_ID + 1);
+        }
+    }
+
+    private int next() {
+        mNext = (mNext + 1) & (SAMPLES - 1);
+        return mNext;
+    }
+
+    @Benchmark
+    public String getFormattedWind() {
+        int i = next();
+        return SunshineWeatherUtils.getFormattedWind(mContext, mSpeeds[i], mDegrees[i]);
+    }
+
+    @Benchmark
+    public int getArt() {
+        return WeatherConditions.getArt(mWeatherIds[next()]);
+    }
+
+    @Benchmark
+    public int getSmallArtResourceIdForWeatherCondition() {
+        return SunshineWeatherUtils.getSmallArtResourceIdForWeatherCondition(mWeatherIds[next()]);
+    }
+
+    @Benchmark
+    public String getStringForWeatherCondition() {
+        return SunshineWeatherUtils.getStringForWeatherCondition(mContext, mWeatherIds[next()]);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.weather;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The WeatherConditions tables against the if/else chains they replaced, on the same ids. In
+ * WeatherConditions' own package, as the chains are only visible there.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WeatherConditionsBenchmark {
+
+    private static final int SAMPLES = 4096;
+
+    /* Ids drawn once, from a fixed seed, so every run measures the same work */
+    private final int[] mWeatherIds = new int[SAMPLES];
+    private int mNext;
+
+    @Setup
+    public void setUp() {
+        /* Ids as a real forecast has them: nearly all valid, a few unknown */
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            mWeatherIds[i] = random.nextInt(20) == 0
+                    ? random.nextInt(2000)
+                    : WeatherConditions.FIRST_ID
+                            + random.nextInt(WeatherConditions.LAST_ID - WeatherConditions.FIRST_ID);
+        }
+    }
+
+    private int next() {
+        mNext = (mNext + 1) & (SAMPLES - 1);
+        return mNext;
+    }
+
+    @Benchmark
+    public int legacyGetArt() {
+        return LegacyWeatherConditions.getArt(mWeatherIds[next()]);
+    }
+
+    @Benchmark
+    public int tableGetArt() {
+        return WeatherConditions.getArt(mWeatherIds[next()]);
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.content;
+
+import com.example.android.sunshine.app.R;
+
+/**
+ * Stand-in for Android's Context, for benchmarking the app's utilities on the JVM. Only what
+ * those utilities call is here; strings come from the stand-in R.
+ */
+public class Context {
+
+    public final String getString(int resId) {
+        return R.string.VALUES[resId];
+    }
+
+    public final String getString(int resId, Object... formatArgs) {
+        return String.format(getString(resId), formatArgs);
+    }
+}
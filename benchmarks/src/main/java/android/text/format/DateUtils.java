@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.text.format;
+
+import android.content.Context;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Stand-in for Android's DateUtils, for benchmarking the app's utilities on the JVM. Formats with
+ * SimpleDateFormat, which is roughly what the real one costs, rather than exactly what it prints.
+ */
+public final class DateUtils {
+
+    public static final int FORMAT_SHOW_WEEKDAY = 0x00002;
+    public static final int FORMAT_SHOW_DATE = 0x00010;
+    public static final int FORMAT_NO_YEAR = 0x00008;
+    public static final int FORMAT_ABBREV_ALL = 0x80000;
+
+    private DateUtils() {
+    }
+
+    public static String formatDateTime(Context context, long millis, int flags) {
+        String pattern = (flags & FORMAT_ABBREV_ALL) != 0 ? "EEE, MMM d" : "EEEE, MMMM d";
+        return new SimpleDateFormat(pattern, Locale.getDefault()).format(new Date(millis));
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.sunshine.app;
+
+/**
+ * Stand-in for the app's generated R, with just the resources the benchmarked utilities use.
+ * String ids index {@link string#VALUES}, which is what the stand-in Context reads.
+ */
+public final class R {
+
+    private R() {
+    }
+
+    public static final class string {
+        public static final int today = 0;
+        public static final int tomorrow = 1;
+        public static final int format_temperature = 2;
+        public static final int format_wind_kmh = 3;
+        public static final int format_wind_mph = 4;
+        public static final int condition_unknown = 5;
+        public static final int condition_2xx = 6;
+        public static final int condition_3xx = 7;
+        public static final int condition_500 = 8;
+        public static final int condition_501 = 9;
+        public static final int condition_502 = 10;
+        public static final int condition_503 = 11;
+        public static final int condition_504 = 12;
+        public static final int condition_511 = 13;
+        public static final int condition_520 = 14;
+        public static final int condition_531 = 15;
+        public static final int condition_600 = 16;
+        public static final int condition_601 = 17;
+        public static final int condition_602 = 18;
+        public static final int condition_611 = 19;
+        public static final int condition_612 = 20;
+        public static final int condition_615 = 21;
+        public static final int condition_616 = 22;
+        public static final int condition_620 = 23;
+        public static final int condition_621 = 24;
+        public static final int condition_622 = 25;
+        public static final int condition_701 = 26;
+        public static final int condition_711 = 27;
+        public static final int condition_721 = 28;
+        public static final int condition_731 = 29;
+        public static final int condition_741 = 30;
+        public static final int condition_751 = 31;
+        public static final int condition_761 = 32;
+        public static final int condition_762 = 33;
+        public static final int condition_771 = 34;
+        public static final int condition_781 = 35;
+        public static final int condition_800 = 36;
+        public static final int condition_801 = 37;
+        public static final int condition_802 = 38;
+        public static final int condition_803 = 39;
+        public static final int condition_804 = 40;
+        public static final int condition_900 = 41;
+        public static final int condition_901 = 42;
+        public static final int condition_902 = 43;
+        public static final int condition_903 = 44;
+        public static final int condition_904 = 45;
+        public static final int condition_905 = 46;
+        public static final int condition_906 = 47;
+        public static final int condition_951 = 48;
+        public static final int condition_952 = 49;
+        public static final int condition_953 = 50;
+        public static final int condition_954 = 51;
+        public static final int condition_955 = 52;
+        public static final int condition_956 = 53;
+        public static final int condition_957 = 54;
+        public static final int condition_958 = 55;
+        public static final int condition_959 = 56;
+        public static final int condition_960 = 57;
+        public static final int condition_961 = 58;
+        public static final int condition_962 = 59;
+
+        /* Close enough to the app's values for formatting to cost what it does on a device */
+        public static final String[] VALUES = {
+            "Today",
+            "Tomorrow",
+            "%1.0f\u00B0",
+            "%1$1.0f km/h %2$s",
+            "%1$1.0f mph %2$s",
+            "Unknown (%1$d)",
+            "Condition 2xx",
+            "Condition 3xx",
+            "Condition 500",
+            "Condition 501",
+            "Condition 502",
+            "Condition 503",
+            "Condition 504",
+            "Condition 511",
+            "Condition 520",
+            "Condition 531",
+            "Condition 600",
+            "Condition 601",
+            "Condition 602",
+            "Condition 611",
+            "Condition 612",
+            "Condition 615",
+            "Condition 616",
+            "Condition 620",
+            "Condition 621",
+            "Condition 622",
+            "Condition 701",
+            "Condition 711",
+            "Condition 721",
+            "Condition 731",
+            "Condition 741",
+            "Condition 751",
+            "Condition 761",
+            "Condition 762",
+            "Condition 771",
+            "Condition 781",
+            "Condition 800",
+            "Condition 801",
+            "Condition 802",
+            "Condition 803",
+            "Condition 804",
+            "Condition 900",
+            "Condition 901",
+            "Condition 902",
+            "Condition 903",
+            "Condition 904",
+            "Condition 905",
+            "Condition 906",
+            "Condition 951",
+            "Condition 952",
+            "Condition 953",
+            "Condition 954",
+            "Condition 955",
+            "Condition 956",
+            "Condition 957",
+            "Condition 958",
+            "Condition 959",
+            "Condition 960",
+            "Condition 961",
+            "Condition 962",
+        };
+
+        private string() {
+        }
+    }
+
+    public static final class drawable {
+        public static final int art_clear = 0x7f020000;
+        public static final int art_clouds = 0x7f020001;
+        public static final int art_fog = 0x7f020002;
+        public static final int art_light_clouds = 0x7f020003;
+        public static final int art_light_rain = 0x7f020004;
+        public static final int art_rain = 0x7f020005;
+        public static final int art_snow = 0x7f020006;
+        public static final int art_storm = 0x7f020007;
+        public static final int ic_clear = 0x7f020008;
+        public static final int ic_cloudy = 0x7f020009;
+        public static final int ic_fog = 0x7f02000a;
+        public static final int ic_light_clouds = 0x7f02000b;
+        public static final int ic_light_rain = 0x7f02000c;
+        public static final int ic_rain = 0x7f02000d;
+        public static final int ic_snow = 0x7f02000e;
+        public static final int ic_storm = 0x7f02000f;
+
+        private drawable() {
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.Context;
+
+/**
+ * Stand-in for the app's SunshinePreferences, for benchmarking the app's utilities on the JVM.
+ * The units can be switched so that both the metric and imperial paths can be measured.
+ */
+public final class SunshinePreferences {
+
+    private static volatile boolean sMetric = true;
+
+    private SunshinePreferences() {
+    }
+
+    public static void setMetric(boolean metric) {
+        sMetric = metric;
+    }
+
+    public static boolean isMetric(Context context) {
+        return sMetric;
+    }
+
+    public static void setLocationDetails(Context context, double lat, double lon) {
+        /* Nothing to store */
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Draws the time as the watch face does, second after second, once with Canvas.drawText and once
+ * with a DigitGlyphAtlas, and logs how long each frame took under the tag GlyphAtlasBenchmark.
+ * Both are run with and without anti-aliasing, the latter as in low-bit ambient mode.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestDigitGlyphAtlasBenchmark {
+
+    private static final String TAG = "GlyphAtlasBenchmark";
+
+    private static final int WARMUP_FRAMES = 200;
+    private static final int MEASURED_FRAMES = 2000;
+
+    private final Context mContext = InstrumentationRegistry.getTargetContext();
+
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+    private Paint mPaint;
+    private ClockText mClock;
+    private DigitGlyphAtlas mAtlas;
+
+    @Before
+    public void setUp() {
+        mBitmap = Bitmap.createBitmap(320, 320, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mBitmap);
+        mPaint = new Paint();
+        mPaint.setColor(Color.WHITE);
+        mPaint.setTypeface(Typeface.create(Typeface.SANS_SERIF, Typeface.NORMAL));
+        mPaint.setTextSize(mContext.getResources().getDimension(R.dimen.time_text_size));
+        mClock = new ClockText(TimeZone.getTimeZone("UTC"), Locale.US);
+        mAtlas = new DigitGlyphAtlas();
+    }
+
+    @After
+    public void tearDown() {
+        mAtlas.recycle();
+        mBitmap.recycle();
+    }
+
+    @Test
+    public void testAtlasMeasuresLikeThePaint() {
+        for (boolean antiAlias : new boolean[]{true, false}) {
+            mPaint.setAntiAlias(antiAlias);
+            mAtlas.build(mPaint);
+            mClock.update(0);
+            for (int second = 0; second < 24 * 60 * 60; second += 3607) {
+                mClock.update(second * 1000L);
+                char[] time = mClock.getTimeChars();
+                int length = mClock.getTimeLength(false);
+                /* Digits aren't kerned, so the advances add up to within rounding */
+                assertEquals(mPaint.measureText(time, 0, length),
+                        mAtlas.measure(time, 0, length), 0.5f);
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkAtlasAgainstDrawText() {
+        for (boolean antiAlias : new boolean[]{true, false}) {
+            mPaint.setAntiAlias(antiAlias);
+
+            long buildStart = System.nanoTime();
+            mAtlas.build(mPaint);
+            long buildNanos = System.nanoTime() - buildStart;
+
+            frames(false, WARMUP_FRAMES);
+            frames(true, WARMUP_FRAMES);
+            long[] drawText = frames(false, MEASURED_FRAMES);
+            long[] atlas = frames(true, MEASURED_FRAMES);
+
+            Log.i(TAG, (antiAlias ? "anti-aliased" : "aliased") + ", atlas built in "
+                    + millis(buildNanos));
+            Log.i(TAG, "  drawText: " + summary(drawText));
+            Log.i(TAG, "  atlas:    " + summary(atlas));
+        }
+    }
+
+    /* Draws a frame's worth of time for each of a run of seconds, and times each frame */
+    private long[] frames(boolean useAtlas, int frames) {
+        long[] nanos = new long[frames];
+        for (int frame = 0; frame < frames; frame++) {
+            mClock.update(frame * 1000L);
+            char[] time = mClock.getTimeChars();
+            int length = mClock.getTimeLength(false);
+
+            long start = System.nanoTime();
+            if (useAtlas) {
+                float width = mAtlas.measure(time, 0, length);
+                mAtlas.draw(mCanvas, time, 0, length, 160 - width / 2, 140, mPaint);
+            } else {
+                float width = mPaint.measureText(time, 0, length);
+                mCanvas.drawText(time, 0, length, 160 - width / 2, 140, mPaint);
+            }
+            nanos[frame] = System.nanoTime() - start;
+        }
+        return nanos;
+    }
+
+    private static String summary(long[] nanos) {
+        long[] sorted = Arrays.copyOf(nanos, nanos.length);
+        Arrays.sort(sorted);
+        long sum = 0;
+        for (long sample : sorted) {
+            sum += sample;
+        }
+        return String.format(Locale.US, "n=%d mean=%s p50=%s p95=%s p99=%s",
+                sorted.length,
+                millis(sum / sorted.length),
+                millis(sorted[sorted.length / 2]),
+                millis(sorted[(int) Math.ceil(sorted.length * 0.95) - 1]),
+                millis(sorted[(int) Math.ceil(sorted.length * 0.99) - 1]));
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.US, "%.3fms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.graphics.Bitmap;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Checks that WeatherIconCache decodes icons at exactly the size asked for, decodes each only once
+ * while it stays cached, and recycles the bitmaps it evicts.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TestWeatherIconCache {
+
+    private final WeatherIconCache mCache = new WeatherIconCache(
+            InstrumentationRegistry.getTargetContext().getResources(), 2);
+
+    @Test
+    public void testNothingBeforeSizeIsKnown() {
+        assertNull(mCache.get(R.drawable.ic_clear));
+    }
+
+    @Test
+    public void testDecodesAtExactSize() {
+        for (int size : new int[]{17, 48, 60, 90}) {
+            mCache.setSize(size);
+            Bitmap icon = mCache.get(R.drawable.ic_storm);
+            assertEquals(size, icon.getWidth());
+            assertEquals(size, icon.getHeight());
+        }
+        mCache.clear();
+    }
+
+    @Test
+    public void testDecodesOnceAndRecyclesEvicted() {
+        mCache.setSize(48);
+        Bitmap clear = mCache.get(R.drawable.ic_clear);
+        assertSame(clear, mCache.get(R.drawable.ic_clear));
+
+        Bitmap rain = mCache.get(R.drawable.ic_rain);
+        mCache.get(R.drawable.ic_clear);
+        /* Holds two, so the least recently used one goes */
+        mCache.get(R.drawable.ic_snow);
+        assertTrue(rain.isRecycled());
+        assertFalse(clear.isRecycled());
+
+        mCache.setSize(60);
+        assertTrue(clear.isRecycled());
+        mCache.clear();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * The watch face's time and date as text, without allocating anything from one second to the
+ * next. The time lives in a char buffer, "HH:mm:ss", whose digits are rewritten in place and
+ * which Canvas can draw directly; its first {@link #AMBIENT_LENGTH} chars are the ambient
+ * "HH:mm". The date is only formatted again when the local day changes or the time zone does.
+ * <p>
+ * The local time is worked out from the time zone's offset rather than with a Calendar, which
+ * keeps the per frame work down to a little arithmetic.
+ */
+final class ClockText {
+
+    /* "HH:mm:ss" */
+    static final int INTERACTIVE_LENGTH = 8;
+    /* "HH:mm" */
+    static final int AMBIENT_LENGTH = 5;
+
+    private static final long SECOND_IN_MILLIS = 1000;
+    private static final long DAY_IN_SECONDS = 24 * 60 * 60;
+
+    private static final String DATE_PATTERN = "EEE, d MMM";
+
+    private final char[] mTime = {'0', '0', ':', '0', '0', ':', '0', '0'};
+    private final DateFormat mDateFormat;
+
+    private TimeZone mTimeZone;
+    /* The local second and local day last formatted; MIN_VALUE for none */
+    private long mSecond = Long.MIN_VALUE;
+    private long mDay = Long.MIN_VALUE;
+    private String mDateText = "";
+
+    /**
+     * @param timeZone The time zone to show the time in
+     * @param locale   The locale to name the days and months in
+     */
+    ClockText(TimeZone timeZone, Locale locale) {
+        mDateFormat = new SimpleDateFormat(DATE_PATTERN, locale);
+        setTimeZone(timeZone);
+    }
+
+    /**
+     * Switches to another time zone. The next {@link #update(long)} formats everything again.
+     */
+    void setTimeZone(TimeZone timeZone) {
+        mTimeZone = timeZone;
+        mDateFormat.setTimeZone(timeZone);
+        mSecond = Long.MIN_VALUE;
+        mDay = Long.MIN_VALUE;
+    }
+
+    /**
+     * Brings the text up to date with the given time. Allocates nothing unless the date has to be
+     * formatted again.
+     *
+     * @param nowMillis The time, in milliseconds since the epoch
+     * @return true if the date text changed, so anything measured from it must be measured again
+     */
+    boolean update(long nowMillis) {
+        long localMillis = nowMillis + mTimeZone.getOffset(nowMillis);
+        long second = floorDiv(localMillis, SECOND_IN_MILLIS);
+        if (second == mSecond) {
+            return false;
+        }
+        mSecond = second;
+
+        long day = floorDiv(second, DAY_IN_SECONDS);
+        int secondOfDay = (int) (second - day * DAY_IN_SECONDS);
+        setDigits(0, secondOfDay / 3600);
+        setDigits(3, secondOfDay / 60 % 60);
+        setDigits(6, secondOfDay % 60);
+
+        if (day == mDay) {
+            return false;
+        }
+        mDay = day;
+        mDateText = mDateFormat.format(new Date(nowMillis));
+        return true;
+    }
+
+    /**
+     * @return The time, to be drawn from index 0 for {@link #getTimeLength(boolean)} chars. The
+     * buffer is rewritten by every {@link #update(long)}.
+     */
+    char[] getTimeChars() {
+        return mTime;
+    }
+
+    /**
+     * @param withoutSeconds Whether to leave out the seconds, as in ambient mode
+     * @return How many chars of {@link #getTimeChars()} to draw
+     */
+    int getTimeLength(boolean withoutSeconds) {
+        return withoutSeconds ? AMBIENT_LENGTH : INTERACTIVE_LENGTH;
+    }
+
+    String getDateText() {
+        return mDateText;
+    }
+
+    /**
+     * @return The local day last formatted, in days since the epoch; multiplied by a day in
+     * milliseconds, the normalized date the phone stores that day's weather under
+     */
+    long getEpochDay() {
+        return mDay;
+    }
+
+    private void setDigits(int index, int value) {
+        mTime[index] = (char) ('0' + value / 10);
+        mTime[index + 1] = (char) ('0' + value % 10);
+    }
+
+    /* Math.floorDiv only arrived in API 24 */
+    private static long floorDiv(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        if ((dividend % divisor != 0) && ((dividend < 0) != (divisor < 0))) {
+            quotient--;
+        }
+        return quotient;
+    }
+}
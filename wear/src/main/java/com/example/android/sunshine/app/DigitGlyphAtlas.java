@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+
+/**
+ * The digits 0 to 9 and ':' rendered once, side by side, into an alpha-only bitmap, so that the
+ * time can be drawn every second by copying glyphs rather than laying out and rasterizing text.
+ * Being alpha only, the glyphs take the color of whatever Paint they're drawn with.
+ * <p>
+ * An atlas is built for one text size, typeface and anti-aliasing setting; check
+ * {@link #matches(Paint)} before drawing and {@link #build(Paint)} again if it doesn't.
+ * Anti-aliasing is part of it because low-bit ambient mode needs glyphs drawn without it.
+ */
+final class DigitGlyphAtlas {
+
+    private static final char[] GLYPHS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', ':'};
+    private static final int COLON = 10;
+
+    /* Room around each glyph for the parts that stick out past its advance */
+    private static final int PADDING = 2;
+
+    private final float[] mAdvances = new float[GLYPHS.length];
+    /* Reused for every glyph drawn */
+    private final Rect mSource = new Rect();
+    private final RectF mDestination = new RectF();
+
+    private Bitmap mBitmap;
+    private int mCellWidth;
+    private int mCellHeight;
+    private float mAscent;
+
+    private float mTextSize;
+    private Typeface mTypeface;
+    private boolean mAntiAlias;
+
+    /**
+     * @return true if the atlas was built for the text size, typeface and anti-aliasing of the
+     * given paint, and so can draw text in it
+     */
+    boolean matches(Paint paint) {
+        return mBitmap != null
+                && mTextSize == paint.getTextSize()
+                && mTypeface == paint.getTypeface()
+                && mAntiAlias == paint.isAntiAlias();
+    }
+
+    /**
+     * Renders the glyphs as the given paint would draw them, replacing any built before.
+     */
+    void build(Paint paint) {
+        recycle();
+        mTextSize = paint.getTextSize();
+        mTypeface = paint.getTypeface();
+        mAntiAlias = paint.isAntiAlias();
+
+        Paint glyphPaint = new Paint(paint);
+        glyphPaint.setColor(Color.WHITE);
+        Paint.FontMetrics metrics = glyphPaint.getFontMetrics();
+        mAscent = metrics.ascent;
+
+        float maxAdvance = 0;
+        for (int glyph = 0; glyph < GLYPHS.length; glyph++) {
+            mAdvances[glyph] = glyphPaint.measureText(GLYPHS, glyph, 1);
+            maxAdvance = Math.max(maxAdvance, mAdvances[glyph]);
+        }
+        mCellWidth = (int) Math.ceil(maxAdvance) + 2 * PADDING;
+        mCellHeight = (int) Math.ceil(metrics.descent - metrics.ascent) + 2 * PADDING;
+
+        mBitmap = Bitmap.createBitmap(mCellWidth * GLYPHS.length, mCellHeight,
+                Bitmap.Config.ALPHA_8);
+        Canvas canvas = new Canvas(mBitmap);
+        for (int glyph = 0; glyph < GLYPHS.length; glyph++) {
+            canvas.drawText(GLYPHS, glyph, 1, glyph * mCellWidth + PADDING,
+                    PADDING - mAscent, glyphPaint);
+        }
+    }
+
+    /**
+     * @return How wide the text is, exactly as the paint the atlas was built from measures it
+     */
+    float measure(char[] text, int start, int count) {
+        float width = 0;
+        for (int i = start; i < start + count; i++) {
+            width += mAdvances[indexOf(text[i])];
+        }
+        return width;
+    }
+
+    /**
+     * Draws text made only of digits and ':', like Canvas.drawText would.
+     *
+     * @param x        Where the text starts
+     * @param baseline Where the text sits
+     * @param paint    Gives the glyphs their color
+     */
+    void draw(Canvas canvas, char[] text, int start, int count, float x, float baseline,
+              Paint paint) {
+        float top = baseline + mAscent - PADDING;
+        for (int i = start; i < start + count; i++) {
+            int glyph = indexOf(text[i]);
+            mSource.set(glyph * mCellWidth, 0, (glyph + 1) * mCellWidth, mCellHeight);
+            mDestination.set(x - PADDING, top, x - PADDING + mCellWidth, top + mCellHeight);
+            canvas.drawBitmap(mBitmap, mSource, mDestination, paint);
+            x += mAdvances[glyph];
+        }
+    }
+
+    void recycle() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+    }
+
+    private static int indexOf(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c == ':') {
+            return COLON;
+        }
+        throw new IllegalArgumentException("No glyph for " + c);
+    }
+}
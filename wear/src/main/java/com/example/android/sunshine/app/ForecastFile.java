@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import com.example.android.sunshine.weather.WatchForecast;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The last forecast the phone sent, kept in a small file so that a new watch face shows the
+ * weather from its very first frame instead of waiting for the phone, which may not send anything
+ * for hours. The forecast is kept as the bytes the phone sent, and only written when they change.
+ * <p>
+ * A write goes to a temporary file that then replaces the forecast, so a write cut short leaves
+ * the previous forecast rather than half of a new one.
+ */
+final class ForecastFile {
+
+    static final String FILE_NAME = "forecast.bin";
+
+    /* Far more than any forecast; anything bigger isn't one */
+    private static final int MAX_BYTES = 4096;
+
+    private final File mFile;
+    private final File mTempFile;
+
+    /* The bytes last read or written, null if none */
+    private byte[] mBytes;
+
+    /**
+     * @param dir The directory the file is kept in, normally the app's files directory
+     */
+    ForecastFile(File dir) {
+        mFile = new File(dir, FILE_NAME);
+        mTempFile = new File(dir, FILE_NAME + ".tmp");
+    }
+
+    /**
+     * Reads the forecast. Small enough to read on the main thread.
+     *
+     * @return The forecast last written, or null if there's none or it can't be read
+     */
+    WatchForecast read() {
+        long length = mFile.length();
+        if (length <= 0 || length > MAX_BYTES) {
+            return null;
+        }
+
+        byte[] bytes = new byte[(int) length];
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(mFile);
+            int read = 0;
+            while (read < bytes.length) {
+                int count = in.read(bytes, read, bytes.length - read);
+                if (count < 0) {
+                    return null;
+                }
+                read += count;
+            }
+            WatchForecast forecast = WatchForecast.fromBytes(bytes);
+            mBytes = bytes;
+            return forecast;
+        } catch (IOException | IllegalArgumentException e) {
+            /* Written by another version, or damaged; the phone will send it again */
+            return null;
+        } finally {
+            close(in);
+        }
+    }
+
+    /**
+     * Keeps a forecast the phone sent, unless it's the one already kept.
+     *
+     * @param bytes The forecast, as the phone sent it
+     * @return Whether the bytes differ from those last read or written
+     * @throws IOException If the forecast couldn't be written; the file is then as it was
+     */
+    boolean write(byte[] bytes) throws IOException {
+        if (Arrays.equals(bytes, mBytes)) {
+            return false;
+        }
+
+        FileOutputStream out = new FileOutputStream(mTempFile);
+        try {
+            out.write(bytes);
+            out.getFD().sync();
+        } finally {
+            close(out);
+        }
+        if (!mTempFile.renameTo(mFile)) {
+            mTempFile.delete();
+            throw new IOException("Couldn't replace " + mFile);
+        }
+        mBytes = bytes.clone();
+        return true;
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * How long the watch face takes to draw and how late its timer wakes it, as histograms that are
+ * allocated once up front, so that recording a frame costs a few array writes and allocates
+ * nothing. Each histogram has a bucket per power of two microseconds, from under a microsecond
+ * to over half a second, along with an exact count, sum and max; percentiles are read off the
+ * buckets as upper bounds.
+ * <p>
+ * Must only be used from one thread.
+ */
+final class FrameStats {
+
+    /* The histograms kept */
+    static final int DRAW_INTERACTIVE = 0;
+    static final int DRAW_AMBIENT = 1;
+    static final int DRAW_LAYER = 2;
+    static final int TICK_DRIFT = 3;
+    static final int HISTOGRAM_COUNT = 4;
+
+    private static final String[] NAMES = {
+            "interactive draw",
+            "ambient draw",
+            "layer draw",
+            "tick drift",
+    };
+
+    /* Bucket i holds durations of under 2^i microseconds; the last holds everything longer */
+    static final int BUCKET_COUNT = 21;
+
+    /* A tick this much later than asked for misses a frame at 60 frames per second */
+    static final long LATE_TICK_NANOS = 16667000;
+
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private final long[][] mBuckets = new long[HISTOGRAM_COUNT][BUCKET_COUNT];
+    private final long[] mCounts = new long[HISTOGRAM_COUNT];
+    private final long[] mSums = new long[HISTOGRAM_COUNT];
+    private final long[] mMaxes = new long[HISTOGRAM_COUNT];
+    private long mLateTicks;
+
+    /**
+     * @param histogram One of the histogram constants
+     * @param nanos     The duration; a negative one counts as 0
+     */
+    void record(int histogram, long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        mBuckets[histogram][bucketOf(nanos)]++;
+        mCounts[histogram]++;
+        mSums[histogram] += nanos;
+        if (nanos > mMaxes[histogram]) {
+            mMaxes[histogram] = nanos;
+        }
+        if (histogram == TICK_DRIFT && nanos > LATE_TICK_NANOS) {
+            mLateTicks++;
+        }
+    }
+
+    long getCount(int histogram) {
+        return mCounts[histogram];
+    }
+
+    long getMaxNanos(int histogram) {
+        return mMaxes[histogram];
+    }
+
+    /**
+     * @return Ticks more than {@link #LATE_TICK_NANOS} late
+     */
+    long getLateTicks() {
+        return mLateTicks;
+    }
+
+    /**
+     * @param percentile From 0 to 100
+     * @return The upper bound of the bucket the percentile falls in, in nanoseconds, capped at the
+     * max; 0 if nothing was recorded
+     */
+    long getPercentileNanos(int histogram, double percentile) {
+        long count = mCounts[histogram];
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        long[] buckets = mBuckets[histogram];
+        for (int bucket = 0; bucket < BUCKET_COUNT - 1; bucket++) {
+            seen += buckets[bucket];
+            if (seen >= rank) {
+                return Math.min((1L << bucket) * 1000, mMaxes[histogram]);
+            }
+        }
+        return mMaxes[histogram];
+    }
+
+    void reset() {
+        for (int histogram = 0; histogram < HISTOGRAM_COUNT; histogram++) {
+            Arrays.fill(mBuckets[histogram], 0);
+            mCounts[histogram] = 0;
+            mSums[histogram] = 0;
+            mMaxes[histogram] = 0;
+        }
+        mLateTicks = 0;
+    }
+
+    /**
+     * @return A line per histogram with anything in it, then the late ticks; allocates, so not
+     * for every frame
+     */
+    String summarize() {
+        StringBuilder summary = new StringBuilder();
+        for (int histogram = 0; histogram < HISTOGRAM_COUNT; histogram++) {
+            long count = mCounts[histogram];
+            if (count == 0) {
+                continue;
+            }
+            summary.append(String.format(Locale.US, "%s: n=%d mean=%.3fms", NAMES[histogram],
+                    count, mSums[histogram] / 1e6 / count));
+            for (double percentile : PERCENTILES) {
+                summary.append(String.format(Locale.US, " p%.0f<=%.3fms", percentile,
+                        getPercentileNanos(histogram, percentile) / 1e6));
+            }
+            summary.append(String.format(Locale.US, " max=%.3fms%n", mMaxes[histogram] / 1e6));
+        }
+        summary.append("late ticks: ").append(mLateTicks)
+                .append(" of ").append(mCounts[TICK_DRIFT]);
+        return summary.toString();
+    }
+
+    /* The power of two microseconds a duration is under */
+    private static int bucketOf(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return bucket < BUCKET_COUNT ? bucket : BUCKET_COUNT - 1;
+    }
+}
@@ -22,7 +22,6 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
@@ -31,6 +30,7 @@ import android.graphics.Typeface;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.content.ContextCompat;
@@ -39,19 +39,22 @@ import android.support.wearable.watchface.WatchFaceStyle;
 import android.util.Log;
 import android.view.SurfaceHolder;
 
+import com.example.android.sunshine.weather.WatchForecast;
+import com.example.android.sunshine.weather.WeatherConditions;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.common.api.ResultCallback;
 import com.google.android.gms.wearable.DataApi;
 import com.google.android.gms.wearable.DataEvent;
 import com.google.android.gms.wearable.DataEventBuffer;
 import com.google.android.gms.wearable.DataItem;
+import com.google.android.gms.wearable.DataItemBuffer;
 import com.google.android.gms.wearable.DataMapItem;
 import com.google.android.gms.wearable.Wearable;
 
+import java.io.IOException;
 import java.lang.ref.WeakReference;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
+import java.util.Locale;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
@@ -64,10 +67,65 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
     private static final Typeface NORMAL_TYPEFACE =
             Typeface.create(Typeface.SANS_SERIF, Typeface.NORMAL);
 
-    private static final long INTERACTIVE_UPDATE_RATE_MS = TimeUnit.SECONDS.toMillis(1);
-
     private static final int MSG_UPDATE_TIME = 0;
 
+    private static final long DAY_IN_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /*
+     * Frame timings are summarized in logcat every this many frames, under FRAME_LOG_TAG, when
+     * that tag is loggable at DEBUG: adb shell setprop log.tag.WatchFaceFrames DEBUG
+     */
+    private static final String FRAME_LOG_TAG = "WatchFaceFrames";
+    private static final int FRAMES_PER_REPORT = 600;
+
+    /*
+     * In debug builds, frame timings are also summarized in logcat whenever this is broadcast,
+     * and started over if EXTRA_RESET is true:
+     * adb shell am broadcast -a com.example.android.sunshine.app.DUMP_FRAME_STATS --ez reset true
+     */
+    private static final String ACTION_DUMP_FRAME_STATS =
+            "com.example.android.sunshine.app.DUMP_FRAME_STATS";
+    private static final String EXTRA_RESET = "reset";
+
+    /*
+     * How often the interactive timer woke the watch face is logged under TICK_LOG_TAG each time
+     * the timer stops, when that tag is loggable at DEBUG: adb shell setprop
+     * log.tag.WatchFaceTicks DEBUG
+     */
+    private static final String TICK_LOG_TAG = "WatchFaceTicks";
+
+    /*
+     * Icons for each kind of weather art, indexed by the ART_ constants of WeatherConditions,
+     * which works out the art for a weather id for us and for the phone app alike.
+     */
+    private static final int[] WEATHER_ICON_IDS = {
+            R.drawable.ic_default,          // ART_UNKNOWN
+            R.drawable.ic_storm,            // ART_STORM
+            R.drawable.ic_light_rain,       // ART_LIGHT_RAIN
+            R.drawable.ic_rain,             // ART_RAIN
+            R.drawable.ic_snow,             // ART_SNOW
+            R.drawable.ic_fog,              // ART_FOG
+            R.drawable.ic_clear,            // ART_CLEAR
+            R.drawable.ic_light_clouds,     // ART_LIGHT_CLOUDS
+            R.drawable.ic_cloudy,           // ART_CLOUDS
+    };
+
+    /* The icons for the most common weather, decoded ahead of time while the watch is idle */
+    private static final int[] LIKELY_ICON_IDS = {
+            R.drawable.ic_clear,
+            R.drawable.ic_light_clouds,
+            R.drawable.ic_cloudy,
+    };
+
+    /* Enough for today's icon and the likely ones */
+    private static final int MAX_CACHED_ICONS = 4;
+
+    /*
+     * Icons are drawn at this fraction of the shorter side of the watch face: the 60px of the hdpi
+     * icons on the common 320px watches, and in proportion on others.
+     */
+    private static final float ICON_SIZE_FRACTION = 3 / 16f;
+
     @Override
     public Engine onCreateEngine() {
         return new Engine();
@@ -111,22 +169,78 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
         Paint mMinTempPaint;
         Paint mMaxTempPaint;
         Paint mWeatherIconPaint;
+        Paint mLinePaint;
+
+        /* Resolved once in onCreate, so that onDraw never goes to the resources */
+        float mMargin;
 
         boolean mAmbient;
-        Calendar mCalendar;
+
+        /*
+         * The time and date as text. onDraw runs every second, so the text is kept up to date in
+         * place rather than formatted anew, and the date is only measured when it changes.
+         */
+        ClockText mClockText;
+        float mDateTextWidth;
+
+        /*
+         * Everything but the time, drawn once into an offscreen bitmap and only drawn again when
+         * it changes: the weather, the date, the bounds or ambient mode. Each frame then only
+         * copies the layer and draws the time over it.
+         */
+        Bitmap mLayerBitmap;
+        Canvas mLayerCanvas;
+        boolean mLayerDirty = true;
+
+        /*
+         * The time is drawn from prerendered glyphs rather than as text: one atlas for the time
+         * paint with anti-aliasing and one without, for low-bit ambient mode.
+         */
+        final DigitGlyphAtlas mTimeAtlas = new DigitGlyphAtlas();
+        final DigitGlyphAtlas mLowBitTimeAtlas = new DigitGlyphAtlas();
+
+        /* When the interactive timer ticks, and whether the time shows seconds */
+        TickSchedule mTickSchedule;
+
+        /*
+         * Frame timings: how long frames and the layer take to draw, and how late the timer
+         * wakes up, against the uptime it was asked to wake up at; 0 if it wasn't
+         */
+        final FrameStats mFrameStats = new FrameStats();
+        int mFramesSinceReport;
+        long mNextTickUptimeMillis;
+
+        final BroadcastReceiver mFrameStatsReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                Log.i(FRAME_LOG_TAG, mFrameStats.summarize());
+                if (intent.getBooleanExtra(EXTRA_RESET, false)) {
+                    mFrameStats.reset();
+                }
+            }
+        };
 
         final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                mClockText.setTimeZone(TimeZone.getDefault());
                 invalidate();
             }
         };
 
+        /*
+         * Every day the phone sent, so that the watch face moves on to the next day's weather at
+         * midnight without waiting for the phone. Also kept in mForecastFile, from which it is
+         * read before the first frame.
+         */
+        WatchForecast mForecast;
+        ForecastFile mForecastFile;
+
         String maxTempText = getString(R.string.default_max_temp);
         String minTempText = getString(R.string.default_min_temp);
-        long weatherID;
-        Bitmap mWeatherIconBitmap;
+        /* The drawable for the weather, 0 until there is weather; drawn through mIconCache */
+        int mWeatherIconId;
+        WeatherIconCache mIconCache;
 
         boolean mLowBitAmbient;
         boolean mBurnInProtection;
@@ -165,10 +279,24 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
                     R.color.primary_text));
             mMaxTempPaint.setTextSize(resources.getDimension(R.dimen.max_temp_text_size));
 
-            mCalendar = Calendar.getInstance();
+            mClockText = new ClockText(TimeZone.getDefault(), Locale.getDefault());
+            mTickSchedule = new TickSchedule(resources.getInteger(R.integer.seconds_mode),
+                    TimeUnit.SECONDS.toMillis(resources.getInteger(R.integer.seconds_after_wake)));
 
             mWeatherIconPaint = new Paint();
 
+            mLinePaint = new Paint();
+            mLinePaint.setColor(ContextCompat.getColor(SunshineWatchFaceService.this,
+                    R.color.primary_text));
+
+            mMargin = resources.getDimension(R.dimen.margin);
+
+            mIconCache = new WeatherIconCache(resources, MAX_CACHED_ICONS);
+
+            /* Today's weather is picked out of it when the first frame sets the date */
+            mForecastFile = new ForecastFile(getFilesDir());
+            mForecast = mForecastFile.read();
+
             mGoogleApiClient = new GoogleApiClient.Builder(SunshineWatchFaceService.this)
                     .addConnectionCallbacks(this)
                     .addOnConnectionFailedListener(this)
@@ -176,11 +304,30 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
                     .build();
 
             mGoogleApiClient.connect();
+
+            if (BuildConfig.DEBUG) {
+                SunshineWatchFaceService.this.registerReceiver(mFrameStatsReceiver,
+                        new IntentFilter(ACTION_DUMP_FRAME_STATS));
+            }
         }
 
         @Override
         public void onDestroy() {
             mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            if (BuildConfig.DEBUG) {
+                SunshineWatchFaceService.this.unregisterReceiver(mFrameStatsReceiver);
+            }
+            if (mLayerBitmap != null) {
+                mLayerBitmap.recycle();
+                mLayerBitmap = null;
+            }
+            mTimeAtlas.recycle();
+            mLowBitTimeAtlas.recycle();
+            mIconCache.clear();
+            if (mGoogleApiClient.isConnected()) {
+                Wearable.DataApi.removeListener(mGoogleApiClient, this);
+            }
+            mGoogleApiClient.disconnect();
             super.onDestroy();
         }
 
@@ -198,8 +345,9 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
 
             if (visible) {
                 registerReceiver();
+                mTickSchedule.onWake(System.currentTimeMillis());
 
-                mCalendar.setTimeZone(TimeZone.getDefault());
+                mClockText.setTimeZone(TimeZone.getDefault());
                 invalidate();
             } else {
                 unregisterReceiver();
@@ -247,6 +395,9 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
 
             if (mAmbient != inAmbientMode) {
                 mAmbient = inAmbientMode;
+                if (!inAmbientMode) {
+                    mTickSchedule.onWake(System.currentTimeMillis());
+                }
 
                 if (mLowBitAmbient) {
                     mDatePaint.setAntiAlias(!inAmbientMode);
@@ -254,54 +405,97 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
                     mMinTempPaint.setAntiAlias(!inAmbientMode);
                     mMaxTempPaint.setAntiAlias(!inAmbientMode);
                 }
-                invalidate();
+                invalidateLayer();
             }
 
             // Whether the timer should be running depends on whether we're visible (as well as
             // whether we're in ambient mode), so we may need to start or stop the timer.
             updateTimer();
         }
-        Paint mLine = new Paint();
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
+            long frameStart = System.nanoTime();
+            long now = System.currentTimeMillis();
 
-            if (isInAmbientMode()) {
-                canvas.drawColor(Color.BLACK);
-            } else {
-                canvas.drawRect(0, 0, bounds.width(), bounds.height(), mBackgroundPaint);
+            if (mClockText.update(now)) {
+                mDateTextWidth = mDatePaint.measureText(mClockText.getDateText());
+                showTodaysWeather();
+                mLayerDirty = true;
             }
 
-            long now = System.currentTimeMillis();
-            mCalendar.setTimeInMillis(now);
+            if (mLayerBitmap == null
+                    || mLayerBitmap.getWidth() != bounds.width()
+                    || mLayerBitmap.getHeight() != bounds.height()) {
+                if (mLayerBitmap != null) {
+                    mLayerBitmap.recycle();
+                }
+                mLayerBitmap = Bitmap.createBitmap(bounds.width(), bounds.height(),
+                        Bitmap.Config.ARGB_8888);
+                mLayerCanvas = new Canvas(mLayerBitmap);
+                mLayerDirty = true;
+
+                mIconCache.setSize(Math.round(
+                        Math.min(bounds.width(), bounds.height()) * ICON_SIZE_FRACTION));
+                mIconCache.prefetch(LIKELY_ICON_IDS);
+            }
+
+            if (mLayerDirty) {
+                long layerStart = System.nanoTime();
+                drawLayer(mLayerCanvas, bounds);
+                mLayerDirty = false;
+                mFrameStats.record(FrameStats.DRAW_LAYER, System.nanoTime() - layerStart);
+            }
+            canvas.drawBitmap(mLayerBitmap, bounds.left, bounds.top, null);
 
-            float margin = getResources().getDimension(R.dimen.margin);
             float centerXOfWatchface = bounds.centerX();
             float centerYOfWatchface = bounds.centerY();
-            float startLine = bounds.left;
-            float endLine = bounds.right;
 
-            String timeText = mAmbient ?
-                    String.format("%02d:%02d",
-                            mCalendar.get(Calendar.HOUR_OF_DAY),
-                            mCalendar.get(Calendar.MINUTE)) :
-                    String.format("%02d:%02d:%02d",
-                            mCalendar.get(Calendar.HOUR_OF_DAY),
-                            mCalendar.get(Calendar.MINUTE),
-                            mCalendar.get(Calendar.SECOND));
+            DigitGlyphAtlas timeAtlas = getTimeAtlas();
+            char[] timeText = mClockText.getTimeChars();
+            int timeTextLength = mClockText.getTimeLength(
+                    mAmbient || !mTickSchedule.showsSeconds(now));
+            float timeTextWidth = timeAtlas.measure(timeText, 0, timeTextLength);
+
+            timeAtlas.draw(canvas, timeText, 0, timeTextLength,
+                    centerXOfWatchface - (timeTextWidth / 2), centerYOfWatchface - 2 * mMargin,
+                    mTimePaint);
 
-            float timeTextWidth = mTimePaint.measureText(timeText);
+            recordFrame(System.nanoTime() - frameStart);
+        }
+
+        /**
+         * @return The atlas for the time paint as it is now, built again only if its size or
+         * typeface changed since
+         */
+        private DigitGlyphAtlas getTimeAtlas() {
+            DigitGlyphAtlas atlas = mTimePaint.isAntiAlias() ? mTimeAtlas : mLowBitTimeAtlas;
+            if (!atlas.matches(mTimePaint)) {
+                atlas.build(mTimePaint);
+            }
+            return atlas;
+        }
 
-            canvas.drawText(timeText, centerXOfWatchface - (timeTextWidth / 2), centerYOfWatchface - 2 * margin, mTimePaint);
+        /**
+         * Draws everything but the time. The layer covers the whole of the bounds, so it's drawn
+         * at their origin.
+         */
+        private void drawLayer(Canvas canvas, Rect bounds) {
+            if (mAmbient) {
+                canvas.drawColor(Color.BLACK);
+            } else {
+                canvas.drawRect(0, 0, bounds.width(), bounds.height(), mBackgroundPaint);
+            }
 
-            mLine.setColor(getResources().getColor(R.color.primary_text));
+            float margin = mMargin;
+            float centerXOfWatchface = bounds.width() / 2f;
+            float centerYOfWatchface = bounds.height() / 2f;
+            float startLine = 0;
+            float endLine = bounds.width();
 
-            canvas.drawLine(startLine, centerYOfWatchface + 20, endLine, centerYOfWatchface + 20, mLine);
+            canvas.drawLine(startLine, centerYOfWatchface + 20, endLine, centerYOfWatchface + 20, mLinePaint);
             // Display date only if not in ambient mode
             if (!mAmbient) {
-                SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, d MMM");
-                String dateText = dateFormat.format(new Date(now));
-                float dateTextWidth = mDatePaint.measureText(dateText);
-                canvas.drawText(dateText, centerXOfWatchface - dateTextWidth / 2,
+                canvas.drawText(mClockText.getDateText(), centerXOfWatchface - mDateTextWidth / 2,
                         centerYOfWatchface - (margin / 2), mDatePaint);
 
             }
@@ -313,18 +507,55 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
                         40 + centerYOfWatchface + margin, mMinTempPaint);
             }
 
-            if (!mAmbient && mWeatherIconBitmap != null) {
-                canvas.drawBitmap(mWeatherIconBitmap,
-                        centerXOfWatchface - mWeatherIconBitmap.getWidth() - (2 * margin),
+            Bitmap weatherIcon = !mAmbient && mWeatherIconId != 0
+                    ? mIconCache.get(mWeatherIconId)
+                    : null;
+            if (weatherIcon != null) {
+                canvas.drawBitmap(weatherIcon,
+                        centerXOfWatchface - weatherIcon.getWidth() - (2 * margin),
                         40 + centerYOfWatchface, mWeatherIconPaint);
             }
+        }
+
+        /**
+         * Redraws the layer, and so the watch face, on the next frame.
+         */
+        private void invalidateLayer() {
+            mLayerDirty = true;
+            invalidate();
+        }
+
+        /**
+         * Adds a frame to the timings, as an ambient or interactive one, and every
+         * {@link #FRAMES_PER_REPORT} frames logs a summary of them all so far.
+         */
+        private void recordFrame(long frameNanos) {
+            mFrameStats.record(mAmbient ? FrameStats.DRAW_AMBIENT : FrameStats.DRAW_INTERACTIVE,
+                    frameNanos);
+            if (++mFramesSinceReport < FRAMES_PER_REPORT) {
+                return;
+            }
 
+            mFramesSinceReport = 0;
+            if (Log.isLoggable(FRAME_LOG_TAG, Log.DEBUG)) {
+                Log.d(FRAME_LOG_TAG, mFrameStats.summarize());
+            }
         }
 
         private void updateTimer() {
             mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            long now = System.currentTimeMillis();
             if (shouldTimerBeRunning()) {
+                mTickSchedule.onTimerStarted(now);
+                mNextTickUptimeMillis = SystemClock.uptimeMillis();
                 mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_TIME);
+            } else if (mTickSchedule.onTimerStopped(now)
+                    && Log.isLoggable(TICK_LOG_TAG, Log.DEBUG)) {
+                Log.d(TICK_LOG_TAG, String.format(Locale.US,
+                        "mode %d: %d wakeups, %.1f per hour",
+                        mTickSchedule.getMode(),
+                        mTickSchedule.getTicks(),
+                        mTickSchedule.getWakeupsPerHour(now)));
             }
         }
 
@@ -332,19 +563,54 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
             return isVisible() && !isInAmbientMode();
         }
 
+        /**
+         * Redraws, and while the timer should run, wakes up again when the time shown next
+         * changes: on the second while the seconds are shown, else on the minute.
+         */
         private void handleUpdateTimeMessage() {
+            long uptime = SystemClock.uptimeMillis();
+            if (mNextTickUptimeMillis != 0) {
+                mFrameStats.record(FrameStats.TICK_DRIFT,
+                        TimeUnit.MILLISECONDS.toNanos(uptime - mNextTickUptimeMillis));
+            }
+
             invalidate();
             if (shouldTimerBeRunning()) {
-                long timeMs = System.currentTimeMillis();
-                long delayMs = INTERACTIVE_UPDATE_RATE_MS
-                        - (timeMs % INTERACTIVE_UPDATE_RATE_MS);
-                mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
+                mTickSchedule.onTick();
+                long delayMs = mTickSchedule.getDelayToNextTick(System.currentTimeMillis());
+                mNextTickUptimeMillis = uptime + delayMs;
+                mUpdateTimeHandler.sendEmptyMessageAtTime(MSG_UPDATE_TIME, mNextTickUptimeMillis);
+            } else {
+                mNextTickUptimeMillis = 0;
             }
         }
 
         @Override
         public void onConnected(@Nullable Bundle bundle) {
             Wearable.DataApi.addListener(mGoogleApiClient, this);
+
+            /*
+             * The listener only hears of changes from now on, so also look at the forecast the
+             * phone last sent, in case it changed while the watch face wasn't running.
+             */
+            Wearable.DataApi.getDataItems(mGoogleApiClient)
+                    .setResultCallback(new ResultCallback<DataItemBuffer>() {
+                        @Override
+                        public void onResult(@NonNull DataItemBuffer dataItems) {
+                            try {
+                                if (!dataItems.getStatus().isSuccess()) {
+                                    return;
+                                }
+                                for (DataItem dataItem : dataItems) {
+                                    if (dataItem.getUri().getPath().equals(WEATHER_PATH)) {
+                                        extractInfoFromDataItem(dataItem);
+                                    }
+                                }
+                            } finally {
+                                dataItems.release();
+                            }
+                        }
+                    });
         }
 
         @Override
@@ -369,49 +635,74 @@ public class SunshineWatchFaceService extends CanvasWatchFaceService {
 
         private void extractInfoFromDataItem(DataItem dataItem) {
             DataMapItem dataMapItem = DataMapItem.fromDataItem(dataItem);
-            maxTempText = dataMapItem.getDataMap().getString(getString(R.string.max_temp_key));
-            minTempText = dataMapItem.getDataMap().getString(getString(R.string.min_temp_key));
-            weatherID = dataMapItem.getDataMap().getLong(getString(R.string.weather_id_key));
-            getBitmapFromDrawable(weatherID);
+            byte[] forecast = dataMapItem.getDataMap().getByteArray(WatchForecast.DATA_KEY);
+            if (forecast == null) {
+                return;
+            }
+
+            WatchForecast decoded;
+            try {
+                decoded = WatchForecast.fromBytes(forecast);
+            } catch (IllegalArgumentException e) {
+                Log.w(LOG_TAG, "Ignoring forecast from the phone", e);
+                return;
+            }
+
+            boolean changed = true;
+            try {
+                changed = mForecastFile.write(forecast);
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Couldn't keep the forecast", e);
+            }
+            if (!changed && mForecast != null) {
+                /* What the watch face already shows */
+                return;
+            }
+
+            mForecast = decoded;
+            showTodaysWeather();
+            invalidateLayer();
         }
 
-        private void getBitmapFromDrawable(long weatherID) {
-            mWeatherIconBitmap = BitmapFactory.decodeResource(getResources(),
-                    getWeatherIconForWeatherCondition(weatherID));
+        /**
+         * Picks today's weather out of the forecast, or goes back to the defaults if the forecast
+         * doesn't have today. Nothing is shown until the clock knows what day it is.
+         */
+        private void showTodaysWeather() {
+            long today = mClockText.getEpochDay();
+            if (today == Long.MIN_VALUE) {
+                return;
+            }
 
-            invalidate();
+            int index = mForecast == null
+                    ? -1
+                    : mForecast.indexOfDate(today * DAY_IN_MILLIS);
+            if (index < 0) {
+                maxTempText = getString(R.string.default_max_temp);
+                minTempText = getString(R.string.default_min_temp);
+                mWeatherIconId = 0;
+                return;
+            }
+
+            boolean metric = mForecast.isMetric();
+            maxTempText = formatTemperature(mForecast.getMaxCelsius(index), metric);
+            minTempText = formatTemperature(mForecast.getMinCelsius(index), metric);
+            /* Decoded, or found already decoded, when the layer is next drawn */
+            mWeatherIconId = getWeatherIconForWeatherCondition(mForecast.getWeatherId(index));
         }
 
-        private int getWeatherIconForWeatherCondition(long weatherId) {
+        private String formatTemperature(double celsius, boolean metric) {
+            double temperature = metric ? celsius : celsius * 1.8 + 32;
+            return getString(R.string.format_temperature, Math.round(temperature));
+        }
 
-            if (weatherId >= 200 && weatherId <= 232) {
-                return R.drawable.ic_storm;
-            } else if (weatherId >= 300 && weatherId <= 321) {
-                return R.drawable.ic_light_rain;
-            } else if (weatherId >= 500 && weatherId <= 504) {
-                return R.drawable.ic_rain;
-            } else if (weatherId == 511) {
-                return R.drawable.ic_snow;
-            } else if (weatherId >= 520 && weatherId <= 531) {
-                return R.drawable.ic_rain;
-            } else if (weatherId >= 600 && weatherId <= 622) {
-                return R.drawable.ic_snow;
-            } else if (weatherId >= 701 && weatherId <= 761) {
-                return R.drawable.ic_fog;
-            } else if (weatherId == 761 || weatherId == 771 || weatherId == 781) {
-                return R.drawable.ic_storm;
-            } else if (weatherId == 800) {
-                return R.drawable.ic_clear;
-            } else if (weatherId == 801) {
-                return R.drawable.ic_light_clouds;
-            } else if (weatherId >= 802 && weatherId <= 804) {
-                return R.drawable.ic_cloudy;
-            } else if (weatherId >= 900 && weatherId <= 906) {
-                return R.drawable.ic_storm;
-            } else if (weatherId >= 958 && weatherId <= 962) {
-                return R.drawable.ic_storm;
-            } else if (weatherId >= 951 && weatherId <= 957) {
-                return R.drawable.ic_clear;
+        private int getWeatherIconForWeatherCondition(long weatherId) {
+            /* Anything that doesn't fit in an int is as unknown as an int we don't know */
+            int art = weatherId == (int) weatherId
+                    ? WeatherConditions.getArt((int) weatherId)
+                    : WeatherConditions.ART_UNKNOWN;
+            if (art != WeatherConditions.ART_UNKNOWN) {
+                return WEATHER_ICON_IDS[art];
             }
 
             Log.e(LOG_TAG, getString(R.string.unknown_weather) + weatherId);
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+/**
+ * When the watch face wakes up to draw while it's interactive, and whether it shows the seconds
+ * when it does. Every wakeup costs battery, and the seconds alone need one a second, so they can
+ * be shown always, never, or only for a while after the watch wakes up, which is when someone is
+ * looking at it. Without the seconds, the watch face wakes up once a minute, on the minute.
+ * <p>
+ * Wakeups are counted while the timer runs, so the modes can be compared in wakeups per hour.
+ * <p>
+ * Times are wall clock milliseconds, as the boundaries are those of the time shown.
+ */
+final class TickSchedule {
+
+    /* Seconds are always shown */
+    static final int MODE_SECONDS = 0;
+    /* Seconds are never shown; a tick a minute */
+    static final int MODE_MINUTES = 1;
+    /* Seconds are shown for a while after the watch wakes up, then a tick a minute */
+    static final int MODE_SECONDS_AFTER_WAKE = 2;
+
+    static final long SECOND_IN_MILLIS = 1000;
+    static final long MINUTE_IN_MILLIS = 60 * SECOND_IN_MILLIS;
+    static final long HOUR_IN_MILLIS = 60 * MINUTE_IN_MILLIS;
+
+    private final int mMode;
+    private final long mSecondsAfterWakeMillis;
+
+    /* When the seconds stop being shown in MODE_SECONDS_AFTER_WAKE */
+    private long mSecondsUntil = Long.MIN_VALUE;
+
+    /* Wakeups, and how long the timer ran, so far; plus when it started, if running */
+    private boolean mRunning;
+    private long mStartedAt;
+    private long mRunMillis;
+    private long mTicks;
+
+    /**
+     * @param mode                   One of the MODE_ constants
+     * @param secondsAfterWakeMillis How long the seconds are shown after a wakeup, in
+     *                               {@link #MODE_SECONDS_AFTER_WAKE}
+     */
+    TickSchedule(int mode, long secondsAfterWakeMillis) {
+        if (mode < MODE_SECONDS || mode > MODE_SECONDS_AFTER_WAKE) {
+            throw new IllegalArgumentException("Mode " + mode);
+        }
+        mMode = mode;
+        mSecondsAfterWakeMillis = secondsAfterWakeMillis;
+    }
+
+    int getMode() {
+        return mMode;
+    }
+
+    /**
+     * Called when the watch wakes up: becomes visible, or leaves ambient mode.
+     */
+    void onWake(long nowMillis) {
+        mSecondsUntil = nowMillis + mSecondsAfterWakeMillis;
+    }
+
+    boolean showsSeconds(long nowMillis) {
+        switch (mMode) {
+            case MODE_SECONDS:
+                return true;
+            case MODE_SECONDS_AFTER_WAKE:
+                return nowMillis < mSecondsUntil;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return How long from now until the next time the time shown changes: the start of the
+     * next second while the seconds are shown, else the start of the next minute
+     */
+    long getDelayToNextTick(long nowMillis) {
+        long period = showsSeconds(nowMillis) ? SECOND_IN_MILLIS : MINUTE_IN_MILLIS;
+        return period - floorMod(nowMillis, period);
+    }
+
+    /**
+     * Counts a wakeup of the running timer.
+     */
+    void onTick() {
+        mTicks++;
+    }
+
+    void onTimerStarted(long nowMillis) {
+        if (!mRunning) {
+            mRunning = true;
+            mStartedAt = nowMillis;
+        }
+    }
+
+    /**
+     * @return Whether the timer was running
+     */
+    boolean onTimerStopped(long nowMillis) {
+        if (!mRunning) {
+            return false;
+        }
+        mRunning = false;
+        mRunMillis += Math.max(0, nowMillis - mStartedAt);
+        return true;
+    }
+
+    long getTicks() {
+        return mTicks;
+    }
+
+    /**
+     * @return Wakeups per hour of the timer running, so far; 0 if it hasn't run
+     */
+    double getWakeupsPerHour(long nowMillis) {
+        long runMillis = mRunMillis + (mRunning ? Math.max(0, nowMillis - mStartedAt) : 0);
+        return runMillis == 0 ? 0 : (double) mTicks * HOUR_IN_MILLIS / runMillis;
+    }
+
+    /* Math.floorMod only arrived in API 24 */
+    private static long floorMod(long dividend, long divisor) {
+        long mod = dividend % divisor;
+        return mod < 0 ? mod + divisor : mod;
+    }
+}
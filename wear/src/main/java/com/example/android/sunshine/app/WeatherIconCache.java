@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.LruCache;
+
+import java.util.ArrayDeque;
+
+/**
+ * Weather icons decoded once, straight to the size the watch face draws them at, and kept in a
+ * small LRU. Bitmaps that fall out of the LRU are recycled, so callers must not hold on to one:
+ * keep the resource id and ask the cache again each time the icon is drawn.
+ * <p>
+ * Icons that are likely to be needed can be queued with {@link #prefetch(int...)}; they are
+ * decoded one at a time while the main thread is idle, and only into room the LRU has spare, so
+ * prefetching never pushes out an icon in use.
+ * <p>
+ * Must only be used from the main thread.
+ */
+final class WeatherIconCache {
+
+    private final Resources mResources;
+    private final LruCache<Integer, Bitmap> mIcons;
+    private final ArrayDeque<Integer> mPrefetch = new ArrayDeque<>();
+
+    private int mSize;
+    private boolean mIdleHandlerAdded;
+
+    private final MessageQueue.IdleHandler mPrefetcher = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            Integer resId = mPrefetch.poll();
+            if (resId != null && mSize > 0 && mIcons.size() < mIcons.maxSize()
+                    && mIcons.get(resId) == null) {
+                mIcons.put(resId, decode(resId));
+            }
+            mIdleHandlerAdded = !mPrefetch.isEmpty();
+            return mIdleHandlerAdded;
+        }
+    };
+
+    /**
+     * @param resources  Where the icons come from
+     * @param maxIcons   How many decoded icons to keep
+     */
+    WeatherIconCache(Resources resources, int maxIcons) {
+        mResources = resources;
+        mIcons = new LruCache<Integer, Bitmap>(maxIcons) {
+            @Override
+            protected void entryRemoved(boolean evicted, Integer key, Bitmap oldValue,
+                                        Bitmap newValue) {
+                oldValue.recycle();
+            }
+        };
+    }
+
+    /**
+     * Sets the width and height, in pixels, icons are decoded at. Icons decoded at another size
+     * are thrown away.
+     */
+    void setSize(int size) {
+        if (size == mSize) return;
+        mSize = size;
+        mIcons.evictAll();
+    }
+
+    /**
+     * @param resId A drawable resource
+     * @return The icon at the current size, decoding it if it isn't cached; null if no size has
+     * been set yet. Only valid until the next call to the cache.
+     */
+    Bitmap get(int resId) {
+        if (mSize <= 0) return null;
+        Bitmap icon = mIcons.get(resId);
+        if (icon == null) {
+            icon = decode(resId);
+            mIcons.put(resId, icon);
+        }
+        return icon;
+    }
+
+    /**
+     * Queues icons to be decoded the next times the main thread is idle.
+     */
+    void prefetch(int... resIds) {
+        for (int resId : resIds) {
+            if (!mPrefetch.contains(resId)) {
+                mPrefetch.add(resId);
+            }
+        }
+        if (!mIdleHandlerAdded && !mPrefetch.isEmpty()) {
+            mIdleHandlerAdded = true;
+            Looper.myQueue().addIdleHandler(mPrefetcher);
+        }
+    }
+
+    /**
+     * Recycles every icon and forgets any prefetching still queued.
+     */
+    void clear() {
+        mPrefetch.clear();
+        if (mIdleHandlerAdded) {
+            mIdleHandlerAdded = false;
+            Looper.myQueue().removeIdleHandler(mPrefetcher);
+        }
+        mIcons.evictAll();
+    }
+
+    /**
+     * Decodes an icon to exactly the current size: subsampled by the largest power of two that
+     * keeps it at least that big, then scaled the rest of the way by the decoder itself, so that
+     * the full resolution bitmap is never in memory.
+     */
+    private Bitmap decode(int resId) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        BitmapFactory.decodeResource(mResources, resId, options);
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= mSize
+                && options.outHeight / (sampleSize * 2) >= mSize) {
+            sampleSize *= 2;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inScaled = true;
+        options.inDensity = Math.max(1, options.outWidth / sampleSize);
+        options.inTargetDensity = mSize;
+        return BitmapFactory.decodeResource(mResources, resId, options);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class TestClockText {
+
+    /* 2017-03-14T23:59:58Z, a Tuesday */
+    private static final long BEFORE_MIDNIGHT_UTC = 1489535998000L;
+
+    private static final int FRAMES = 20000;
+
+    @Test
+    public void testFormatsTime() {
+        ClockText clock = new ClockText(TimeZone.getTimeZone("UTC"), Locale.US);
+        assertTrue(clock.update(BEFORE_MIDNIGHT_UTC));
+        assertEquals("23:59:58", time(clock, false));
+        assertEquals("23:59", time(clock, true));
+        assertEquals("Tue, 14 Mar", clock.getDateText());
+    }
+
+    @Test
+    public void testFollowsTimeZone() {
+        ClockText clock = new ClockText(TimeZone.getTimeZone("GMT+05:30"), Locale.US);
+        clock.update(BEFORE_MIDNIGHT_UTC);
+        assertEquals("05:29:58", time(clock, false));
+        assertEquals("Wed, 15 Mar", clock.getDateText());
+
+        clock.setTimeZone(TimeZone.getTimeZone("GMT-08:00"));
+        assertTrue(clock.update(BEFORE_MIDNIGHT_UTC));
+        assertEquals("15:59:58", time(clock, false));
+        assertEquals("Tue, 14 Mar", clock.getDateText());
+    }
+
+    @Test
+    public void testDateOnlyChangesAtMidnight() {
+        ClockText clock = new ClockText(TimeZone.getTimeZone("UTC"), Locale.US);
+        assertTrue(clock.update(BEFORE_MIDNIGHT_UTC));
+        assertFalse(clock.update(BEFORE_MIDNIGHT_UTC + 500));
+        assertFalse(clock.update(BEFORE_MIDNIGHT_UTC + 1000));
+        assertEquals("23:59:59", time(clock, false));
+        assertTrue(clock.update(BEFORE_MIDNIGHT_UTC + 2000));
+        assertEquals("00:00:00", time(clock, false));
+        assertEquals("Wed, 15 Mar", clock.getDateText());
+    }
+
+    @Test
+    public void testBeforeTheEpoch() {
+        ClockText clock = new ClockText(TimeZone.getTimeZone("UTC"), Locale.US);
+        clock.update(-1);
+        assertEquals("23:59:59", time(clock, false));
+        assertEquals("Wed, 31 Dec", clock.getDateText());
+    }
+
+    @Test
+    public void testNoAllocationsPerFrame() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        ClockText clock = new ClockText(TimeZone.getTimeZone("Europe/London"), Locale.UK);
+        /* Start just after midnight, so that every frame measured falls on the same day */
+        long start = BEFORE_MIDNIGHT_UTC + 2000;
+        clock.update(start);
+        long checksum = frames(clock, start, FRAMES);
+
+        /* What measuring itself costs, which isn't the clock's doing */
+        long before = allocations.getThreadAllocatedBytes(thread);
+        long overhead = allocations.getThreadAllocatedBytes(thread) - before;
+
+        before = allocations.getThreadAllocatedBytes(thread);
+        checksum += frames(clock, start, FRAMES);
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before - overhead;
+
+        assertTrue(checksum != 0);
+        assertEquals("Bytes allocated over " + FRAMES + " frames", 0, allocated);
+    }
+
+    /* One update and one read of the text a second, as onDraw does */
+    private static long frames(ClockText clock, long start, int frames) {
+        long checksum = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            clock.update(start + frame * 1000L);
+            checksum += clock.getTimeChars()[clock.getTimeLength(false) - 1];
+            checksum += clock.getDateText().length();
+        }
+        return checksum;
+    }
+
+    private static String time(ClockText clock, boolean ambient) {
+        return new String(clock.getTimeChars(), 0, clock.getTimeLength(ambient));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import com.example.android.sunshine.weather.WatchForecast;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestForecastFile {
+
+    /* 2017-01-01 */
+    private static final long FIRST_DATE = 17167L * 24 * 60 * 60 * 1000;
+
+    @Test
+    public void testNothingToReadAtFirst() throws IOException {
+        File dir = createDir();
+        try {
+            assertNull(new ForecastFile(dir).read());
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testReadsWhatWasWritten() throws IOException {
+        File dir = createDir();
+        try {
+            byte[] bytes = forecast(800).toBytes();
+            assertTrue(new ForecastFile(dir).write(bytes));
+
+            /* As a new watch face would */
+            ForecastFile file = new ForecastFile(dir);
+            WatchForecast read = file.read();
+            assertArrayEquals(bytes, read.toBytes());
+            assertEquals(800, read.getWeatherId(0));
+            assertFalse(new File(dir, ForecastFile.FILE_NAME + ".tmp").exists());
+
+            /* The same forecast again isn't written; another is */
+            assertFalse(file.write(bytes.clone()));
+            assertTrue(file.write(forecast(500).toBytes()));
+            assertEquals(500, new ForecastFile(dir).read().getWeatherId(0));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testIgnoresWhatIsNotAForecast() throws IOException {
+        File dir = createDir();
+        try {
+            byte[] bytes = forecast(800).toBytes();
+            FileOutputStream out = new FileOutputStream(new File(dir, ForecastFile.FILE_NAME));
+            out.write(bytes, 0, bytes.length - 1);
+            out.close();
+
+            ForecastFile file = new ForecastFile(dir);
+            assertNull(file.read());
+            assertTrue(file.write(bytes));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static WatchForecast forecast(int weatherId) {
+        return new WatchForecast(true, new long[]{FIRST_DATE}, new int[]{weatherId},
+                new double[]{21.5}, new double[]{12});
+    }
+
+    private static File createDir() throws IOException {
+        File dir = File.createTempFile("forecast", "");
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("Couldn't create " + dir);
+        }
+        return dir;
+    }
+
+    private static void delete(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class TestFrameStats {
+
+    private static final long MILLI = 1000000;
+
+    @Test
+    public void testPercentilesAreBucketUpperBounds() {
+        FrameStats stats = new FrameStats();
+        /* 90 frames of 3ms and 10 of 40ms */
+        for (int i = 0; i < 90; i++) {
+            stats.record(FrameStats.DRAW_INTERACTIVE, 3 * MILLI);
+        }
+        for (int i = 0; i < 10; i++) {
+            stats.record(FrameStats.DRAW_INTERACTIVE, 40 * MILLI);
+        }
+        assertEquals(100, stats.getCount(FrameStats.DRAW_INTERACTIVE));
+        assertEquals(0, stats.getCount(FrameStats.DRAW_AMBIENT));
+        assertEquals(40 * MILLI, stats.getMaxNanos(FrameStats.DRAW_INTERACTIVE));
+        /* 3ms falls under 4.096ms, 40ms under 65.536ms, capped at the max */
+        assertEquals(4096000, stats.getPercentileNanos(FrameStats.DRAW_INTERACTIVE, 50));
+        assertEquals(4096000, stats.getPercentileNanos(FrameStats.DRAW_INTERACTIVE, 90));
+        assertEquals(40 * MILLI, stats.getPercentileNanos(FrameStats.DRAW_INTERACTIVE, 99));
+        assertEquals(0, stats.getPercentileNanos(FrameStats.DRAW_AMBIENT, 50));
+    }
+
+    @Test
+    public void testOutliersAndNegatives() {
+        FrameStats stats = new FrameStats();
+        stats.record(FrameStats.DRAW_LAYER, 5000 * MILLI);
+        stats.record(FrameStats.DRAW_LAYER, -1);
+        assertEquals(2, stats.getCount(FrameStats.DRAW_LAYER));
+        /* The negative one counts as 0, under a microsecond; the outlier as itself */
+        assertEquals(1000, stats.getPercentileNanos(FrameStats.DRAW_LAYER, 50));
+        assertEquals(5000 * MILLI, stats.getPercentileNanos(FrameStats.DRAW_LAYER, 99));
+    }
+
+    @Test
+    public void testLateTicks() {
+        FrameStats stats = new FrameStats();
+        stats.record(FrameStats.TICK_DRIFT, MILLI);
+        stats.record(FrameStats.TICK_DRIFT, FrameStats.LATE_TICK_NANOS);
+        stats.record(FrameStats.TICK_DRIFT, FrameStats.LATE_TICK_NANOS + 1);
+        stats.record(FrameStats.DRAW_AMBIENT, 100 * MILLI);
+        assertEquals(1, stats.getLateTicks());
+        assertTrue(stats.summarize().endsWith("late ticks: 1 of 3"));
+
+        stats.reset();
+        assertEquals(0, stats.getLateTicks());
+        assertEquals(0, stats.getCount(FrameStats.TICK_DRIFT));
+        assertEquals("late ticks: 0 of 0", stats.summarize());
+    }
+
+    @Test
+    public void testNoAllocationsPerFrame() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        FrameStats stats = new FrameStats();
+        record(stats, 20000);
+
+        /* What measuring itself costs, which isn't the stats' doing */
+        long before = allocations.getThreadAllocatedBytes(thread);
+        long overhead = allocations.getThreadAllocatedBytes(thread) - before;
+
+        before = allocations.getThreadAllocatedBytes(thread);
+        record(stats, 20000);
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before - overhead;
+
+        assertEquals(40000, stats.getCount(FrameStats.DRAW_INTERACTIVE));
+        assertEquals("Bytes allocated over 20000 frames", 0, allocated);
+    }
+
+    private static void record(FrameStats stats, int frames) {
+        for (int i = 0; i < frames; i++) {
+            stats.record(FrameStats.DRAW_INTERACTIVE, i * 1000L);
+            stats.record(FrameStats.TICK_DRIFT, i * 100L);
+        }
+    }
+}
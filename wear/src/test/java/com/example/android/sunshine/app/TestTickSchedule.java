@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestTickSchedule {
+
+    /* 2017-03-14T23:59:58.250Z */
+    private static final long NOW = 1489535998250L;
+
+    @Test
+    public void testSecondsTickOnTheSecond() {
+        TickSchedule schedule = new TickSchedule(TickSchedule.MODE_SECONDS, 0);
+        assertTrue(schedule.showsSeconds(NOW));
+        assertEquals(750, schedule.getDelayToNextTick(NOW));
+        assertEquals(1000, schedule.getDelayToNextTick(NOW + 750));
+    }
+
+    @Test
+    public void testMinutesTickOnTheMinute() {
+        TickSchedule schedule = new TickSchedule(TickSchedule.MODE_MINUTES, 0);
+        schedule.onWake(NOW);
+        assertFalse(schedule.showsSeconds(NOW));
+        assertEquals(1750, schedule.getDelayToNextTick(NOW));
+        assertEquals(60000, schedule.getDelayToNextTick(NOW + 1750));
+    }
+
+    @Test
+    public void testSecondsAfterWake() {
+        TickSchedule schedule = new TickSchedule(TickSchedule.MODE_SECONDS_AFTER_WAKE, 5000);
+        assertFalse(schedule.showsSeconds(NOW));
+
+        schedule.onWake(NOW);
+        assertTrue(schedule.showsSeconds(NOW + 4999));
+        assertEquals(751, schedule.getDelayToNextTick(NOW + 4999));
+        /* The tick that hides the seconds, then on to the minute */
+        assertFalse(schedule.showsSeconds(NOW + 5000));
+        assertEquals(56750, schedule.getDelayToNextTick(NOW + 5000));
+
+        schedule.onWake(NOW + 120000);
+        assertTrue(schedule.showsSeconds(NOW + 120000));
+    }
+
+    @Test
+    public void testBeforeTheEpoch() {
+        TickSchedule schedule = new TickSchedule(TickSchedule.MODE_SECONDS, 0);
+        assertEquals(250, schedule.getDelayToNextTick(-250));
+    }
+
+    @Test
+    public void testWakeupsPerHour() {
+        TickSchedule schedule = new TickSchedule(TickSchedule.MODE_SECONDS, 0);
+        assertEquals(0, schedule.getWakeupsPerHour(NOW), 0);
+        assertFalse(schedule.onTimerStopped(NOW));
+
+        /* Ten ticks in ten seconds, then ten seconds stopped, then ten more in ten seconds */
+        schedule.onTimerStarted(NOW);
+        for (int i = 0; i < 10; i++) {
+            schedule.onTick();
+        }
+        assertTrue(schedule.onTimerStopped(NOW + 10000));
+        schedule.onTimerStarted(NOW + 20000);
+        schedule.onTimerStarted(NOW + 25000);
+        for (int i = 0; i < 10; i++) {
+            schedule.onTick();
+        }
+        assertEquals(20, schedule.getTicks());
+        assertEquals(3600, schedule.getWakeupsPerHour(NOW + 30000), 1e-9);
+        assertTrue(schedule.onTimerStopped(NOW + 30000));
+        assertEquals(3600, schedule.getWakeupsPerHour(NOW + 90000), 1e-9);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.weather;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Makes up weather, one day after another, that looks enough like the real thing to test and
+ * benchmark with: temperatures follow the seasons, pressure and humidity drift from day to day
+ * and move together, and the conditions follow from them, so that clear days are common, storms
+ * are rare and it only snows when it's cold.
+ * <p>
+ * The weather only depends on the seed, the location and the first date. The same three always
+ * give the same days, on any device or JVM (only java.util.Random and StrictMath are used), so
+ * every test and benchmark that asks for, say, ten years of London from seed 1 works on the very
+ * same data.
+ * <p>
+ * Days are generated on demand and {@link #next()} reuses one {@link Day}, so years of weather
+ * can be streamed into a database or a file without ever being held in memory.
+ */
+public final class SyntheticWeather {
+
+    private static final long DAY_IN_MILLIS = 24L * 60 * 60 * 1000;
+    private static final double DAYS_PER_YEAR = 365.2425;
+    /* Around July 20th: the warmest day of the year north of the equator */
+    private static final double WARMEST_DAY_OF_YEAR_NORTH = 200;
+
+    /**
+     * Where the weather happens, which decides its climate.
+     */
+    public static final class Location {
+
+        public static final Location MOUNTAIN_VIEW =
+                new Location("Mountain View", 37.3861, -122.0838, 15.0, 5.0, 0.25);
+        public static final Location LONDON =
+                new Location("London", 51.5074, -0.1278, 11.0, 7.0, 0.6);
+        public static final Location MOSCOW =
+                new Location("Moscow", 55.7558, 37.6173, 5.5, 14.0, 0.55);
+        public static final Location SYDNEY =
+                new Location("Sydney", -33.8688, 151.2093, 18.0, 5.0, 0.45);
+        public static final Location SINGAPORE =
+                new Location("Singapore", 1.3521, 103.8198, 27.5, 0.8, 0.85);
+
+        /* All of the above, from dry to wet and from mild to extreme */
+        public static final Location[] ALL =
+                {MOUNTAIN_VIEW, LONDON, MOSCOW, SYDNEY, SINGAPORE};
+
+        public final String name;
+        public final double latitude;
+        public final double longitude;
+        /* Average temperature over the year, in Celsius */
+        public final double meanCelsius;
+        /* How far the average day rises above that in summer and falls below it in winter */
+        public final double seasonalSwingCelsius;
+        /* From 0, almost never rains, to 1, rains most days */
+        public final double wetness;
+
+        public Location(String name, double latitude, double longitude, double meanCelsius,
+                        double seasonalSwingCelsius, double wetness) {
+            this.name = name;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.meanCelsius = meanCelsius;
+            this.seasonalSwingCelsius = seasonalSwingCelsius;
+            this.wetness = wetness;
+        }
+    }
+
+    /**
+     * One day of weather, in the units the app stores.
+     */
+    public static final class Day {
+        /* Normalized UTC midnight, like the date column of the app's weather table */
+        public long date;
+        public int weatherId;
+        public double maxCelsius;
+        public double minCelsius;
+        /* Percent */
+        public double humidity;
+        /* hPa */
+        public double pressure;
+        /* km/h */
+        public double windSpeed;
+        /* Compass degrees the wind comes from */
+        public double degrees;
+    }
+
+    private final Random mRandom;
+    private final Location mLocation;
+    private final Day mDay = new Day();
+    private long mNextDate;
+
+    /* The weather drifts: each of these carries over part of yesterday's value */
+    private double mTemperatureAnomaly;
+    private double mPressureAnomaly;
+    private double mWindDirection;
+
+    /**
+     * @param seed            Picks the weather; the same seed always gives the same weather
+     * @param location        Where the weather is
+     * @param firstDateMillis The date of the first day, a normalized UTC midnight
+     */
+    public SyntheticWeather(long seed, Location location, long firstDateMillis) {
+        /* Mix the location in, so that two locations with the same seed don't move in lockstep */
+        mRandom = new Random(seed * 31 + location.name.hashCode());
+        mLocation = location;
+        mNextDate = firstDateMillis;
+        mWindDirection = mRandom.nextDouble() * 360;
+    }
+
+    /**
+     * Generates the next day.
+     *
+     * @return The day, which is only valid until the next call; the same instance is reused
+     */
+    public Day next() {
+        Day day = mDay;
+        day.date = mNextDate;
+        mNextDate += DAY_IN_MILLIS;
+
+        /* Seasons: a cosine over the year, half a year apart on either side of the equator */
+        double epochDay = Math.floor((double) day.date / DAY_IN_MILLIS);
+        double warmestDay = mLocation.latitude >= 0
+                ? WARMEST_DAY_OF_YEAR_NORTH
+                : WARMEST_DAY_OF_YEAR_NORTH + DAYS_PER_YEAR / 2;
+        double season = StrictMath.cos(2 * StrictMath.PI * (epochDay - warmestDay) / DAYS_PER_YEAR);
+
+        /* Weather systems come and go over a few days */
+        mTemperatureAnomaly = 0.75 * mTemperatureAnomaly + 2.0 * mRandom.nextGaussian();
+        mPressureAnomaly = 0.7 * mPressureAnomaly + 5.0 * mRandom.nextGaussian();
+        double meanCelsius = mLocation.meanCelsius
+                + mLocation.seasonalSwingCelsius * season
+                + mTemperatureAnomaly;
+
+        /* Low pressure brings moisture, clouds and wind */
+        day.pressure = round(1013.25 + mPressureAnomaly, 1);
+        double wetness = mLocation.wetness - mPressureAnomaly / 25 + 0.15 * mRandom.nextGaussian();
+        day.humidity = Math.round(clamp(45 + 45 * wetness + 8 * mRandom.nextGaussian(), 5, 100));
+        double windiness = Math.max(0, 1 - mPressureAnomaly / 12);
+        day.windSpeed = round(Math.abs(mRandom.nextGaussian()) * 6 * windiness + 0.5, 1);
+        mWindDirection = (mWindDirection + 40 * mRandom.nextGaussian() + 360) % 360;
+        day.degrees = Math.round(mWindDirection);
+
+        day.weatherId = pickCondition(wetness, meanCelsius, day);
+
+        /* Clear days swing further from night to day than cloudy ones */
+        double range = isClear(day.weatherId) ? 11 : 6;
+        range += 1.5 * mRandom.nextGaussian();
+        range = clamp(range, 2, 16);
+        day.maxCelsius = round(meanCelsius + range / 2, 2);
+        day.minCelsius = round(meanCelsius - range / 2, 2);
+        return day;
+    }
+
+    /**
+     * Turns how wet and warm the day is into an OpenWeatherMap condition id. The thresholds make
+     * clear and cloudy days common, rain a matter of the location, and storms and the more exotic
+     * ids rare, roughly like a real year of data.
+     */
+    private int pickCondition(double wetness, double meanCelsius, Day day) {
+        double roll = mRandom.nextDouble();
+        boolean freezing = meanCelsius < 1;
+
+        if (wetness > 0.95) {
+            /* Properly wet: rain or snow, sometimes a storm */
+            if (roll < 0.08) return freezing ? 602 : 211;
+            if (freezing) return roll < 0.6 ? 600 : 601;
+            if (roll < 0.45) return 500;
+            if (roll < 0.8) return 501;
+            if (roll < 0.92) return 502;
+            return 520;
+        }
+        if (wetness > 0.75) {
+            /* Damp: drizzle, light rain or snow, grey skies */
+            if (freezing) return roll < 0.5 ? 600 : 804;
+            if (roll < 0.3) return 300;
+            if (roll < 0.6) return 500;
+            return 804;
+        }
+        if (day.humidity > 90 && day.windSpeed < 2) {
+            return roll < 0.5 ? 741 : 701;
+        }
+        if (wetness > 0.5) {
+            if (roll < 0.4) return 803;
+            if (roll < 0.7) return 802;
+            return 801;
+        }
+        if (roll < 0.005) return 781;
+        if (roll < 0.01) return 905;
+        return roll < 0.75 ? 800 : 801;
+    }
+
+    private static boolean isClear(int weatherId) {
+        return weatherId == 800 || weatherId == 801;
+    }
+
+    /**
+     * Writes days of weather for several locations as CSV, with a header row: location, then one
+     * column per column of the app's weather table, named the same. Locations follow each other,
+     * each starting on the same first date, so a file can be replayed a location at a time.
+     *
+     * @param out             Where to write; not closed
+     * @param seed            Picks the weather
+     * @param locations       The locations to write, in order
+     * @param firstDateMillis The date of the first day, a normalized UTC midnight
+     * @param days            How many days to write for each location
+     * @throws IOException If writing failed
+     */
+    public static void writeCsv(Writer out, long seed, Location[] locations, long firstDateMillis,
+                                int days) throws IOException {
+        out.write("location,date,weather_id,max,min,humidity,pressure,wind,degrees\n");
+        for (Location location : locations) {
+            SyntheticWeather weather = new SyntheticWeather(seed, location, firstDateMillis);
+            for (int i = 0; i < days; i++) {
+                Day day = weather.next();
+                out.write(String.format(Locale.US, "%s,%d,%d,%.2f,%.2f,%.0f,%.1f,%.1f,%.0f\n",
+                        location.name, day.date, day.weatherId, day.maxCelsius, day.minCelsius,
+                        day.humidity, day.pressure, day.windSpeed, day.degrees));
+            }
+        }
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = decimals == 1 ? 10 : 100;
+        return Math.round(value * scale) / scale;
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.weather;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The forecast as the phone sends it to the watch: several days of weather in one compact,
+ * versioned byte array, so that the watch gets every day at once and reads it without parsing
+ * any text.
+ * <p>
+ * Version 1 is laid out as follows, big-endian:
+ * <pre>
+ * byte   version, 1
+ * byte   flags: bit 0 set if temperatures are to be shown in Fahrenheit
+ * int    the first day, in days since the epoch
+ * ubyte  the number of days that follow
+ * then, for each day, 7 bytes:
+ *   ubyte  days since the day before; 0 for the first
+ *   ushort the OpenWeatherMap weather id
+ *   short  the high, in tenths of a degree Celsius
+ *   short  the low, in tenths of a degree Celsius
+ * </pre>
+ * Two weeks take 105 bytes.
+ */
+public final class WatchForecast {
+
+    public static final int VERSION = 1;
+
+    /* The DataMap key the forecast is sent under */
+    public static final String DATA_KEY = "forecast";
+
+    public static final int MAX_DAYS = 255;
+
+    /* How much a new forecast changes what the watch shows; see getChange */
+    public static final int CHANGE_NONE = 0;
+    public static final int CHANGE_LATER_DAYS = 1;
+    public static final int CHANGE_TODAY = 2;
+
+    private static final long DAY_IN_MILLIS = 24L * 60 * 60 * 1000;
+    private static final int HEADER_BYTES = 7;
+    private static final int DAY_BYTES = 7;
+    private static final int FLAG_FAHRENHEIT = 1;
+
+    private final boolean mMetric;
+    private final long[] mDates;
+    private final int[] mWeatherIds;
+    /* Tenths of a degree Celsius, as sent */
+    private final short[] mMaxTenths;
+    private final short[] mMinTenths;
+
+    /**
+     * @param metric     Whether temperatures are to be shown in Celsius rather than Fahrenheit
+     * @param dates      Normalized UTC dates, each after the one before and at most 255 days
+     *                   after it
+     * @param weatherIds OpenWeatherMap weather ids, from 0 to 65535
+     * @param maxCelsius Highs, in Celsius; kept to a tenth of a degree
+     * @param minCelsius Lows, in Celsius; kept to a tenth of a degree
+     * @throws IllegalArgumentException If the arrays don't match or a value can't be encoded
+     */
+    public WatchForecast(boolean metric, long[] dates, int[] weatherIds, double[] maxCelsius,
+                         double[] minCelsius) {
+        int days = dates.length;
+        if (days > MAX_DAYS || weatherIds.length != days || maxCelsius.length != days
+                || minCelsius.length != days) {
+            throw new IllegalArgumentException("Can't send " + days + " days");
+        }
+        mMetric = metric;
+        mDates = dates.clone();
+        mWeatherIds = weatherIds.clone();
+        mMaxTenths = new short[days];
+        mMinTenths = new short[days];
+        for (int i = 0; i < days; i++) {
+            if (dates[i] % DAY_IN_MILLIS != 0) {
+                throw new IllegalArgumentException("Date " + dates[i] + " isn't normalized");
+            }
+            if (i > 0) {
+                long gap = (dates[i] - dates[i - 1]) / DAY_IN_MILLIS;
+                if (gap < 1 || gap > 255) {
+                    throw new IllegalArgumentException("Date " + dates[i] + " is " + gap
+                            + " days after the one before");
+                }
+            }
+            if (weatherIds[i] < 0 || weatherIds[i] > 0xffff) {
+                throw new IllegalArgumentException("Weather id " + weatherIds[i]);
+            }
+            mMaxTenths[i] = toTenths(maxCelsius[i]);
+            mMinTenths[i] = toTenths(minCelsius[i]);
+        }
+    }
+
+    private WatchForecast(boolean metric, long[] dates, int[] weatherIds, short[] maxTenths,
+                          short[] minTenths) {
+        mMetric = metric;
+        mDates = dates;
+        mWeatherIds = weatherIds;
+        mMaxTenths = maxTenths;
+        mMinTenths = minTenths;
+    }
+
+    /**
+     * @return The forecast in the current version of the format
+     */
+    public byte[] toBytes() {
+        int days = mDates.length;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + days * DAY_BYTES);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) (mMetric ? 0 : FLAG_FAHRENHEIT));
+        buffer.putInt(days == 0 ? 0 : (int) (mDates[0] / DAY_IN_MILLIS));
+        buffer.put((byte) days);
+        for (int i = 0; i < days; i++) {
+            buffer.put((byte) (i == 0 ? 0 : (mDates[i] - mDates[i - 1]) / DAY_IN_MILLIS));
+            buffer.putShort((short) mWeatherIds[i]);
+            buffer.putShort(mMaxTenths[i]);
+            buffer.putShort(mMinTenths[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @param bytes A forecast, as {@link #toBytes()} made it
+     * @return The forecast
+     * @throws IllegalArgumentException If the bytes aren't a forecast in a version this reads
+     */
+    public static WatchForecast fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            int version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported forecast version " + version);
+            }
+            boolean metric = (buffer.get() & FLAG_FAHRENHEIT) == 0;
+            long day = buffer.getInt();
+            int days = buffer.get() & 0xff;
+            if (bytes.length != HEADER_BYTES + days * DAY_BYTES) {
+                throw new IllegalArgumentException("Forecast of " + days + " days in "
+                        + bytes.length + " bytes");
+            }
+
+            long[] dates = new long[days];
+            int[] weatherIds = new int[days];
+            short[] maxTenths = new short[days];
+            short[] minTenths = new short[days];
+            for (int i = 0; i < days; i++) {
+                day += buffer.get() & 0xff;
+                dates[i] = day * DAY_IN_MILLIS;
+                weatherIds[i] = buffer.getShort() & 0xffff;
+                maxTenths[i] = buffer.getShort();
+                minTenths[i] = buffer.getShort();
+            }
+            return new WatchForecast(metric, dates, weatherIds, maxTenths, minTenths);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Forecast cut short at " + bytes.length + " bytes");
+        }
+    }
+
+    public boolean isMetric() {
+        return mMetric;
+    }
+
+    public int size() {
+        return mDates.length;
+    }
+
+    public long getDate(int index) {
+        return mDates[index];
+    }
+
+    public int getWeatherId(int index) {
+        return mWeatherIds[index];
+    }
+
+    public double getMaxCelsius(int index) {
+        return mMaxTenths[index] / 10.0;
+    }
+
+    public double getMinCelsius(int index) {
+        return mMinTenths[index] / 10.0;
+    }
+
+    /**
+     * @param date A normalized UTC date
+     * @return The index of that day, or -1 if the forecast doesn't have it
+     */
+    public int indexOfDate(long date) {
+        int index = Arrays.binarySearch(mDates, date);
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * Works out how much sending a new forecast would change what the watch shows, so that a
+     * forecast can be sent straight away only when the watch face would look different for it.
+     * The first day of the new forecast is taken to be today, as the phone sends from today on.
+     * Today has changed if the watch had no weather for it, if its weather id now maps to other
+     * art, or if either temperature now shows a different whole degree; a change of units is a
+     * change to today too. Any other difference is to later days.
+     *
+     * @param sent The forecast the watch already has, or null if it has none
+     * @param next The forecast that would be sent
+     * @return {@link #CHANGE_NONE}, {@link #CHANGE_LATER_DAYS} or {@link #CHANGE_TODAY}
+     */
+    public static int getChange(WatchForecast sent, WatchForecast next) {
+        if (sent == null || sent.mMetric != next.mMetric) {
+            return CHANGE_TODAY;
+        }
+        if (next.size() > 0) {
+            int today = sent.indexOfDate(next.mDates[0]);
+            if (today < 0
+                    || WeatherConditions.getArt(sent.mWeatherIds[today])
+                    != WeatherConditions.getArt(next.mWeatherIds[0])
+                    || sent.shownDegrees(sent.mMaxTenths[today])
+                    != next.shownDegrees(next.mMaxTenths[0])
+                    || sent.shownDegrees(sent.mMinTenths[today])
+                    != next.shownDegrees(next.mMinTenths[0])) {
+                return CHANGE_TODAY;
+            }
+        } else if (sent.size() > 0) {
+            return CHANGE_TODAY;
+        }
+        if (Arrays.equals(sent.mDates, next.mDates)
+                && Arrays.equals(sent.mWeatherIds, next.mWeatherIds)
+                && Arrays.equals(sent.mMaxTenths, next.mMaxTenths)
+                && Arrays.equals(sent.mMinTenths, next.mMinTenths)) {
+            return CHANGE_NONE;
+        }
+        return CHANGE_LATER_DAYS;
+    }
+
+    /* A temperature as the watch face shows it: rounded to a whole degree in the units chosen */
+    private long shownDegrees(short tenths) {
+        double celsius = tenths / 10.0;
+        return Math.round(mMetric ? celsius : celsius * 1.8 + 32);
+    }
+
+    private static short toTenths(double celsius) {
+        long tenths = Math.round(celsius * 10);
+        if (tenths < Short.MIN_VALUE || tenths > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Temperature " + celsius);
+        }
+        return (short) tenths;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.weather;
+
+/**
+ * What an OpenWeatherMap weather condition id means to Sunshine: which art to show for it, and
+ * which description. Shared by the phone app and the watch face, which each map the answers to
+ * their own resources.
+ * <p>
+ * Every id OpenWeatherMap uses falls between {@link #FIRST_ID} and {@link #LAST_ID}, so both
+ * answers are kept in tables with one byte per id in that range, filled in once when the class
+ * is loaded. A lookup is a subtraction, one range check and an array read, where the chains of
+ * ifs and switches this replaced took dozens of comparisons for the ids at the end.
+ * <p>
+ * See http://openweathermap.org/weather-conditions for the ids.
+ */
+public final class WeatherConditions {
+
+    /* The lowest and highest ids OpenWeatherMap uses */
+    public static final int FIRST_ID = 200;
+    public static final int LAST_ID = 962;
+
+    /*
+     * The kinds of art a condition is shown with. Each module has a small and/or a large drawable
+     * for each, and its own fallback for ART_UNKNOWN.
+     */
+    public static final int ART_UNKNOWN = 0;
+    public static final int ART_STORM = 1;
+    public static final int ART_LIGHT_RAIN = 2;
+    public static final int ART_RAIN = 3;
+    public static final int ART_SNOW = 4;
+    public static final int ART_FOG = 5;
+    public static final int ART_CLEAR = 6;
+    public static final int ART_LIGHT_CLOUDS = 7;
+    public static final int ART_CLOUDS = 8;
+    public static final int ART_COUNT = 9;
+
+    /* Conditions that share one description across a whole range of ids */
+    public static final int CONDITION_UNKNOWN = 0;
+    public static final int CONDITION_2XX = 1;
+    public static final int CONDITION_3XX = 2;
+
+    /*
+     * The ids with a description of their own, after the two ranges above. Their position in
+     * this array, plus CONDITION_3XX + 1, is their condition index.
+     */
+    private static final int[] DESCRIBED_IDS = {
+            500, 501, 502, 503, 504, 511, 520, 531,
+            600, 601, 602, 611, 612, 615, 616, 620, 621, 622,
+            701, 711, 721, 731, 741, 751, 761, 762, 771, 781,
+            800, 801, 802, 803, 804,
+            900, 901, 902, 903, 904, 905, 906,
+            951, 952, 953, 954, 955, 956, 957, 958, 959, 960, 961, 962,
+    };
+
+    public static final int CONDITION_COUNT = CONDITION_3XX + 1 + DESCRIBED_IDS.length;
+
+    private static final byte[] ART = new byte[LAST_ID - FIRST_ID + 1];
+    private static final byte[] CONDITION = new byte[LAST_ID - FIRST_ID + 1];
+
+    static {
+        fillArt(200, 232, ART_STORM);
+        fillArt(300, 321, ART_LIGHT_RAIN);
+        fillArt(500, 504, ART_RAIN);
+        fillArt(511, 511, ART_SNOW);
+        fillArt(520, 531, ART_RAIN);
+        fillArt(600, 622, ART_SNOW);
+        fillArt(701, 761, ART_FOG);
+        fillArt(771, 771, ART_STORM);
+        fillArt(781, 781, ART_STORM);
+        fillArt(800, 800, ART_CLEAR);
+        fillArt(801, 801, ART_LIGHT_CLOUDS);
+        fillArt(802, 804, ART_CLOUDS);
+        fillArt(900, 906, ART_STORM);
+        fillArt(951, 957, ART_CLEAR);
+        fillArt(958, 962, ART_STORM);
+
+        fillCondition(200, 232, CONDITION_2XX);
+        fillCondition(300, 321, CONDITION_3XX);
+        for (int i = 0; i < DESCRIBED_IDS.length; i++) {
+            fillCondition(DESCRIBED_IDS[i], DESCRIBED_IDS[i], CONDITION_3XX + 1 + i);
+        }
+    }
+
+    private WeatherConditions() {
+    }
+
+    /**
+     * @param weatherId An OpenWeatherMap weather condition id
+     * @return One of the ART_ constants, ART_UNKNOWN if the id isn't one we know
+     */
+    public static int getArt(int weatherId) {
+        int index = weatherId - FIRST_ID;
+        /* Negative if the id is below FIRST_ID or above LAST_ID */
+        if ((index | (LAST_ID - weatherId)) < 0) return ART_UNKNOWN;
+        return ART[index];
+    }
+
+    /**
+     * @param weatherId An OpenWeatherMap weather condition id
+     * @return The index of the id's description, from 0 to CONDITION_COUNT - 1, and
+     * CONDITION_UNKNOWN if the id isn't one we know
+     */
+    public static int getCondition(int weatherId) {
+        int index = weatherId - FIRST_ID;
+        if ((index | (LAST_ID - weatherId)) < 0) return CONDITION_UNKNOWN;
+        return CONDITION[index];
+    }
+
+    /**
+     * Names each condition index the way the app's string resources do, e.g. "2xx" for
+     * CONDITION_2XX and "500" for the index of id 500. Lets each module check that its table of
+     * descriptions is in the same order as ours.
+     *
+     * @param condition A condition index
+     * @return The name of the condition, "unknown" for CONDITION_UNKNOWN
+     */
+    public static String getConditionName(int condition) {
+        switch (condition) {
+            case CONDITION_UNKNOWN:
+                return "unknown";
+            case CONDITION_2XX:
+                return "2xx";
+            case CONDITION_3XX:
+                return "3xx";
+            default:
+                return Integer.toString(DESCRIBED_IDS[condition - CONDITION_3XX - 1]);
+        }
+    }
+
+    private static void fillArt(int firstId, int lastId, int art) {
+        for (int id = firstId; id <= lastId; id++) {
+            ART[id - FIRST_ID] = (byte) art;
+        }
+    }
+
+    private static void fillCondition(int firstId, int lastId, int condition) {
+        for (int id = firstId; id <= lastId; id++) {
+            CONDITION[id - FIRST_ID] = (byte) condition;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.weather;
+
+/**
+ * The if/else and switch chains that SunshineWeatherUtils and the watch face used before
+ * WeatherConditions, with the resources replaced by what WeatherConditions returns for them.
+ * Kept as the reference WeatherConditions is checked against, and as the baseline it's
+ * benchmarked against.
+ */
+final class LegacyWeatherConditions {
+
+    private LegacyWeatherConditions() {
+    }
+
+    /**
+     * The chain shared by getSmallArtResourceIdForWeatherCondition,
+     * getLargeArtResourceIdForWeatherCondition and getWeatherIconForWeatherCondition, which only
+     * differed in the drawables they returned.
+     */
+    static int getArt(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return WeatherConditions.ART_STORM;
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return WeatherConditions.ART_LIGHT_RAIN;
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return WeatherConditions.ART_RAIN;
+        } else if (weatherId == 511) {
+            return WeatherConditions.ART_SNOW;
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return WeatherConditions.ART_RAIN;
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return WeatherConditions.ART_SNOW;
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return WeatherConditions.ART_FOG;
+        } else if (weatherId == 761 || weatherId == 771 || weatherId == 781) {
+            return WeatherConditions.ART_STORM;
+        } else if (weatherId == 800) {
+            return WeatherConditions.ART_CLEAR;
+        } else if (weatherId == 801) {
+            return WeatherConditions.ART_LIGHT_CLOUDS;
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return WeatherConditions.ART_CLOUDS;
+        } else if (weatherId >= 900 && weatherId <= 906) {
+            return WeatherConditions.ART_STORM;
+        } else if (weatherId >= 958 && weatherId <= 962) {
+            return WeatherConditions.ART_STORM;
+        } else if (weatherId >= 951 && weatherId <= 957) {
+            return WeatherConditions.ART_CLEAR;
+        }
+        return WeatherConditions.ART_UNKNOWN;
+    }
+
+    /**
+     * getStringForWeatherCondition, returning the name of the string resource it picked without
+     * the "condition_" prefix.
+     */
+    static String getConditionName(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return "2xx";
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return "3xx";
+        } else switch (weatherId) {
+            case 500:
+            case 501:
+            case 502:
+            case 503:
+            case 504:
+            case 511:
+            case 520:
+            case 531:
+            case 600:
+            case 601:
+            case 602:
+            case 611:
+            case 612:
+            case 615:
+            case 616:
+            case 620:
+            case 621:
+            case 622:
+            case 701:
+            case 711:
+            case 721:
+            case 731:
+            case 741:
+            case 751:
+            case 761:
+            case 762:
+            case 771:
+            case 781:
+            case 800:
+            case 801:
+            case 802:
+            case 803:
+            case 804:
+            case 900:
+            case 901:
+            case 902:
+            case 903:
+            case 904:
+            case 905:
+            case 906:
+            case 951:
+            case 952:
+            case 953:
+            case 954:
+            case 955:
+            case 956:
+            case 957:
+            case 958:
+            case 959:
+            case 960:
+            case 961:
+            case 962:
+                return Integer.toString(weatherId);
+            default:
+                return "unknown";
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.weather;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestSyntheticWeather {
+
+    private static final long DAY_IN_MILLIS = 24L * 60 * 60 * 1000;
+    /* 2017-01-01T00:00:00Z */
+    private static final long FIRST_DATE = 17167L * DAY_IN_MILLIS;
+    private static final int YEARS = 4;
+    private static final int DAYS = YEARS * 365;
+
+    @Test
+    public void testSameSeedGivesSameWeather() throws IOException {
+        assertEquals(csv(7), csv(7));
+    }
+
+    @Test
+    public void testDifferentSeedsGiveDifferentWeather() throws IOException {
+        assertFalse(csv(7).equals(csv(8)));
+    }
+
+    @Test
+    public void testDaysArePlausible() {
+        for (SyntheticWeather.Location location : SyntheticWeather.Location.ALL) {
+            SyntheticWeather weather = new SyntheticWeather(1, location, FIRST_DATE);
+            for (int i = 0; i < DAYS; i++) {
+                SyntheticWeather.Day day = weather.next();
+                String where = location.name + " day " + i;
+                assertEquals(where, FIRST_DATE + i * DAY_IN_MILLIS, day.date);
+                assertTrue(where, day.minCelsius <= day.maxCelsius);
+                assertTrue(where, day.humidity >= 0 && day.humidity <= 100);
+                assertTrue(where, day.pressure > 900 && day.pressure < 1100);
+                assertTrue(where, day.windSpeed >= 0);
+                assertTrue(where, day.degrees >= 0 && day.degrees <= 360);
+                assertTrue(where + " id " + day.weatherId,
+                        WeatherConditions.getCondition(day.weatherId)
+                                != WeatherConditions.CONDITION_UNKNOWN);
+            }
+        }
+    }
+
+    @Test
+    public void testSeasonsFollowTheHemisphere() {
+        /* January is colder than July in London and warmer in Sydney */
+        assertTrue(averageMax(SyntheticWeather.Location.LONDON, 0)
+                < averageMax(SyntheticWeather.Location.LONDON, 181));
+        assertTrue(averageMax(SyntheticWeather.Location.SYDNEY, 0)
+                > averageMax(SyntheticWeather.Location.SYDNEY, 181));
+    }
+
+    @Test
+    public void testWetPlacesRainMore() {
+        assertTrue(rainyDays(SyntheticWeather.Location.SINGAPORE)
+                > rainyDays(SyntheticWeather.Location.MOUNTAIN_VIEW));
+    }
+
+    private static String csv(long seed) throws IOException {
+        StringWriter out = new StringWriter();
+        SyntheticWeather.writeCsv(out, seed, SyntheticWeather.Location.ALL, FIRST_DATE, 60);
+        return out.toString();
+    }
+
+    /* The average high over the month starting firstDay days into each year */
+    private static double averageMax(SyntheticWeather.Location location, int firstDay) {
+        SyntheticWeather weather = new SyntheticWeather(1, location, FIRST_DATE);
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < DAYS; i++) {
+            SyntheticWeather.Day day = weather.next();
+            int dayOfYear = i % 365;
+            if (dayOfYear >= firstDay && dayOfYear < firstDay + 31) {
+                sum += day.maxCelsius;
+                count++;
+            }
+        }
+        return sum / count;
+    }
+
+    private static int rainyDays(SyntheticWeather.Location location) {
+        SyntheticWeather weather = new SyntheticWeather(1, location, FIRST_DATE);
+        int rainy = 0;
+        for (int i = 0; i < DAYS; i++) {
+            int art = WeatherConditions.getArt(weather.next().weatherId);
+            if (art == WeatherConditions.ART_RAIN || art == WeatherConditions.ART_LIGHT_RAIN
+                    || art == WeatherConditions.ART_STORM) {
+                rainy++;
+            }
+        }
+        return rainy;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.weather;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class TestWatchForecast {
+
+    private static final long DAY_IN_MILLIS = 24L * 60 * 60 * 1000;
+    /* 2017-01-01 */
+    private static final long FIRST_DATE = 17167L * DAY_IN_MILLIS;
+
+    @Test
+    public void testRoundTrip() {
+        WatchForecast forecast = twoWeeks(true);
+        byte[] bytes = forecast.toBytes();
+        assertEquals(105, bytes.length);
+
+        WatchForecast decoded = WatchForecast.fromBytes(bytes);
+        assertEquals(14, decoded.size());
+        assertEquals(true, decoded.isMetric());
+        for (int i = 0; i < 14; i++) {
+            assertEquals(forecast.getDate(i), decoded.getDate(i));
+            assertEquals(forecast.getWeatherId(i), decoded.getWeatherId(i));
+            assertEquals(forecast.getMaxCelsius(i), decoded.getMaxCelsius(i), 0);
+            assertEquals(forecast.getMinCelsius(i), decoded.getMinCelsius(i), 0);
+        }
+        assertArrayEquals(bytes, decoded.toBytes());
+    }
+
+    @Test
+    public void testKeepsTenthsOfADegree() {
+        WatchForecast forecast = WatchForecast.fromBytes(new WatchForecast(false,
+                new long[]{FIRST_DATE}, new int[]{962},
+                new double[]{-12.34}, new double[]{-40.06}).toBytes());
+        assertFalse(forecast.isMetric());
+        assertEquals(962, forecast.getWeatherId(0));
+        assertEquals(-12.3, forecast.getMaxCelsius(0), 1e-9);
+        assertEquals(-40.1, forecast.getMinCelsius(0), 1e-9);
+    }
+
+    @Test
+    public void testGapsBetweenDays() {
+        long[] dates = {FIRST_DATE, FIRST_DATE + DAY_IN_MILLIS, FIRST_DATE + 200 * DAY_IN_MILLIS};
+        WatchForecast forecast = WatchForecast.fromBytes(new WatchForecast(true, dates,
+                new int[]{800, 500, 200}, new double[3], new double[3]).toBytes());
+        for (int i = 0; i < dates.length; i++) {
+            assertEquals(dates[i], forecast.getDate(i));
+            assertEquals(i, forecast.indexOfDate(dates[i]));
+        }
+        assertEquals(-1, forecast.indexOfDate(FIRST_DATE + 2 * DAY_IN_MILLIS));
+    }
+
+    @Test
+    public void testEmpty() {
+        WatchForecast forecast = WatchForecast.fromBytes(new WatchForecast(true,
+                new long[0], new int[0], new double[0], new double[0]).toBytes());
+        assertEquals(0, forecast.size());
+        assertEquals(-1, forecast.indexOfDate(FIRST_DATE));
+    }
+
+    @Test
+    public void testRejectsBadBytes() {
+        byte[] bytes = twoWeeks(true).toBytes();
+        byte[] otherVersion = bytes.clone();
+        otherVersion[0] = 2;
+        for (byte[] bad : new byte[][]{
+                new byte[0],
+                Arrays.copyOf(bytes, 3),
+                Arrays.copyOf(bytes, bytes.length - 1),
+                Arrays.copyOf(bytes, bytes.length + 1),
+                otherVersion}) {
+            try {
+                WatchForecast.fromBytes(bad);
+                fail("Decoded " + Arrays.toString(bad));
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testRejectsWhatItCantEncode() {
+        long[][] dates = {{FIRST_DATE + 1}, {FIRST_DATE, FIRST_DATE}, {FIRST_DATE + DAY_IN_MILLIS,
+                FIRST_DATE}, {FIRST_DATE, FIRST_DATE + 256 * DAY_IN_MILLIS}};
+        for (long[] bad : dates) {
+            try {
+                new WatchForecast(true, bad, new int[bad.length], new double[bad.length],
+                        new double[bad.length]);
+                fail("Encoded dates " + Arrays.toString(bad));
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        try {
+            new WatchForecast(true, new long[]{FIRST_DATE}, new int[]{70000},
+                    new double[1], new double[1]);
+            fail("Encoded weather id 70000");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testChange() {
+        WatchForecast sent = twoWeeks(true);
+        assertEquals(WatchForecast.CHANGE_TODAY, WatchForecast.getChange(null, sent));
+        assertEquals(WatchForecast.CHANGE_NONE, WatchForecast.getChange(sent, twoWeeks(true)));
+        assertEquals(WatchForecast.CHANGE_TODAY, WatchForecast.getChange(sent, twoWeeks(false)));
+
+        /* Another id with the same art, and temperatures that round to the same degree */
+        assertEquals(WatchForecast.CHANGE_LATER_DAYS, WatchForecast.getChange(sent,
+                withToday(sent, 201, 10.2, -5.4)));
+        assertEquals(WatchForecast.CHANGE_TODAY, WatchForecast.getChange(sent,
+                withToday(sent, 800, 10, -5)));
+        assertEquals(WatchForecast.CHANGE_TODAY, WatchForecast.getChange(sent,
+                withToday(sent, 200, 10.6, -5)));
+        assertEquals(WatchForecast.CHANGE_TODAY, WatchForecast.getChange(sent,
+                withToday(sent, 200, 10, -4.4)));
+
+        /* Only the last day differs */
+        WatchForecast lastDay = WatchForecast.fromBytes(sent.toBytes());
+        byte[] bytes = lastDay.toBytes();
+        bytes[bytes.length - 1]++;
+        assertEquals(WatchForecast.CHANGE_LATER_DAYS,
+                WatchForecast.getChange(sent, WatchForecast.fromBytes(bytes)));
+    }
+
+    @Test
+    public void testChangeWhenTheDayTurns() {
+        WatchForecast sent = twoWeeks(true);
+        byte[] bytes = sent.toBytes();
+        /* The same days a day on, without the first: today is still what the watch has */
+        WatchForecast tomorrowOn = WatchForecast.fromBytes(shiftedByOneDay(bytes));
+        assertEquals(WatchForecast.CHANGE_LATER_DAYS, WatchForecast.getChange(sent, tomorrowOn));
+        /* A forecast starting after the last day the watch has */
+        WatchForecast later = new WatchForecast(true, new long[]{FIRST_DATE + 30 * DAY_IN_MILLIS},
+                new int[]{800}, new double[1], new double[1]);
+        assertEquals(WatchForecast.CHANGE_TODAY, WatchForecast.getChange(sent, later));
+        WatchForecast empty = new WatchForecast(true, new long[0], new int[0], new double[0],
+                new double[0]);
+        assertEquals(WatchForecast.CHANGE_TODAY, WatchForecast.getChange(sent, empty));
+        assertEquals(WatchForecast.CHANGE_NONE, WatchForecast.getChange(empty, empty));
+    }
+
+    /* The first day replaced, the others as they were */
+    private static WatchForecast withToday(WatchForecast forecast, int weatherId, double max,
+                                           double min) {
+        int days = forecast.size();
+        long[] dates = new long[days];
+        int[] ids = new int[days];
+        double[] maxes = new double[days];
+        double[] mins = new double[days];
+        for (int i = 0; i < days; i++) {
+            dates[i] = forecast.getDate(i);
+            ids[i] = i == 0 ? weatherId : forecast.getWeatherId(i);
+            maxes[i] = i == 0 ? max : forecast.getMaxCelsius(i);
+            mins[i] = i == 0 ? min : forecast.getMinCelsius(i);
+        }
+        return new WatchForecast(forecast.isMetric(), dates, ids, maxes, mins);
+    }
+
+    /* Drops the first day of encoded bytes, starting them a day later */
+    private static byte[] shiftedByOneDay(byte[] bytes) {
+        int days = bytes[6] & 0xff;
+        byte[] shifted = new byte[bytes.length - 7];
+        System.arraycopy(bytes, 0, shifted, 0, 7);
+        System.arraycopy(bytes, 14, shifted, 7, shifted.length - 7);
+        shifted[5]++;
+        shifted[6] = (byte) (days - 1);
+        shifted[7] = 0;
+        return shifted;
+    }
+
+    private static WatchForecast twoWeeks(boolean metric) {
+        long[] dates = new long[14];
+        int[] ids = new int[14];
+        double[] max = new double[14];
+        double[] min = new double[14];
+        for (int i = 0; i < 14; i++) {
+            dates[i] = FIRST_DATE + i * DAY_IN_MILLIS;
+            ids[i] = 200 + 50 * i;
+            max[i] = 10 + i * 1.5;
+            min[i] = -5 + i * 0.3;
+        }
+        return new WatchForecast(metric, dates, ids, max, min);
+    }
+}
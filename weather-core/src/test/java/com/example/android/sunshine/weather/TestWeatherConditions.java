@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.weather;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the WeatherConditions tables give exactly the answers the chains they replaced
+ * did, for every id in and well around the range OpenWeatherMap uses.
+ */
+public class TestWeatherConditions {
+
+    private static final int CHECK_FROM = -1000;
+    private static final int CHECK_TO = 2000;
+
+    @Test
+    public void testArtMatchesLegacyMapping() {
+        for (int id = CHECK_FROM; id <= CHECK_TO; id++) {
+            assertEquals("Art for " + id,
+                    LegacyWeatherConditions.getArt(id), WeatherConditions.getArt(id));
+        }
+    }
+
+    @Test
+    public void testConditionMatchesLegacyMapping() {
+        for (int id = CHECK_FROM; id <= CHECK_TO; id++) {
+            assertEquals("Condition for " + id,
+                    LegacyWeatherConditions.getConditionName(id),
+                    WeatherConditions.getConditionName(WeatherConditions.getCondition(id)));
+        }
+    }
+
+    @Test
+    public void testExtremeIdsAreUnknown() {
+        int[] ids = {Integer.MIN_VALUE, Integer.MIN_VALUE + WeatherConditions.FIRST_ID,
+                WeatherConditions.FIRST_ID - 1, WeatherConditions.LAST_ID + 1, Integer.MAX_VALUE};
+        for (int id : ids) {
+            assertEquals(WeatherConditions.ART_UNKNOWN, WeatherConditions.getArt(id));
+            assertEquals(WeatherConditions.CONDITION_UNKNOWN, WeatherConditions.getCondition(id));
+        }
+    }
+
+    @Test
+    public void testConditionIndicesAreDense() {
+        boolean[] seen = new boolean[WeatherConditions.CONDITION_COUNT];
+        seen[WeatherConditions.CONDITION_UNKNOWN] = true;
+        for (int id = WeatherConditions.FIRST_ID; id <= WeatherConditions.LAST_ID; id++) {
+            seen[WeatherConditions.getCondition(id)] = true;
+        }
+        for (int condition = 0; condition < seen.length; condition++) {
+            assertTrue("No id has condition " + condition, seen[condition]);
+        }
+    }
+}